@@ -1,420 +1,657 @@
 /** Board class for holding a 'snapshot' of a board
+ *
+ * The board is stored as bitboards rather than a grid of tiles.
+ * Edges and hexagonal cells are indexed as described by HexGeometry;
+ * open, blue and red edges are kept as bit sets over the edge indices
+ * and the cells captured by each player as a single bit set each.
  *
  * @author Nihal Mirpuri (nmirpuri)
  * @author Tessa Song (songt)
  * @version 1.0
- * 
- * Attribution: 
+ *
+ * Attribution:
  *  The basic frame of generatePosbMoves() function in this script
  *  was referred from
  *  www.ntu.edu.sg/home/ehchua/programming/java/JavaGame_TicTacToe_AI.html
- * 
+ *
  *  For shuffle array function
  *  stackoverflow.com/questions/1519736/random-shuffling-of-an-array
- *  
+ *
  */
 
 import java.util.*;
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.PrintStream;
 import aiproj.hexifence.*;
 
 public class Board {
-	public static final int UNDO = -1;
 	public int n; // The N value (either 2 or 3)
 	public int size; // The size of the board (4*n-1)
-	public Tile[][] board; // Represents the entire board
 	private int possibleMoves = 0; // Number of possible moves at this state
-	
+
 	// Maximum number of hexagonal cells that can be captured by one move
-	private int maxByOneMove = 0; 
+	private int maxByOneMove = 0;
 	// Number of hexagonal cells available for capture by a single move
-	private int avlbCaptures = 0; 
+	private int avlbCaptures = 0;
 
 	public int blueHex = 0; // Number of hexagons captured by blue player
 	public int redHex = 0; // Number of hexagons captured by red player
-	
-	
-	/** constructor 
+
+	// Index tables, shared by every board of the same size
+	private HexGeometry geometry;
+	private int numEdges; // Number of edges on the board
+	private int numHexes; // Number of hexagonal cells on the board
+	private int words; // Number of longs needed to hold one bit per edge
+	private int[] edgeIndex; // Edge index of the tile (i, j) at i*size+j or -1
+	private int[] edgeRow; // Row of each edge
+	private int[] edgeCol; // Column of each edge
+	private long[][] hexEdges; // Bit set of the 6 edges of each hexagon
+	private int[][] edgeHexes; // Indices of the 1 or 2 hexagons of each edge
+	// Zobrist keys of each taken edge and each cell captured by either
+	// player, by symmetry, i.e. the keys of the edge or cell it goes to
+	private long[][] edgeKeys;
+	private long[][] blueCellKeys;
+	private long[][] redCellKeys;
+
+	// Bitboards
+	private long[] openEdges; // Edges which are still '+'
+	private long[] blueEdges; // Edges taken by blue ('B')
+	private long[] redEdges; // Edges taken by red ('R')
+	private long blueCells = 0; // Hexagons captured by blue ('b')
+	private long redCells = 0; // Hexagons captured by red ('r')
+
+	// Zobrist hash of the taken edges and the owners of the captured cells
+	// of the board after each symmetry, hashes[0] being the board as it is
+	private long[] hashes;
+	// Zobrist hash of the taken edges only, by symmetry
+	private long[] edgeHashes;
+
+	// Number of cells that can be captured by making move on each edge
+	private byte[] captureValue;
+	// Number of open edges of each hexagon
+	private byte[] hexOpen;
+	// Number of edges which can capture two cells at once
+	private int doubleCaptures = 0;
+	// Regions of cells joined by open edges, and the chains among them,
+	// null until first asked for, then kept up to date by every move
+	private RegionGraph regions;
+
+	// Undo journal, one entry for every move made by setBoard()
+	private int journalSize = 0;
+	private int[] journalEdge; // Edge taken by the move
+	private long[] journalCells; // Cells captured by the move
+	private int[] journalBlueHex; // blueHex before the move
+	private int[] journalRedHex; // redHex before the move
+
+	// Random order of the possible moves when they are shuffled
+	private final Random random = new Random();
+
+
+	/** constructor
 	 */
 	public Board(int n){
 		this.n = n;
 		this.size = 4*n-1;
 		buildBoard();
 	}
-	
-	/** Build a board by filling it with either + or -
+
+	/** Look up the index tables of the board and open every edge
 	 */
 	public void buildBoard(){
-		
-		// create board object
-		board = new Tile[size][size];
-		
-		// fill the board with either + or -
-		for(int i = 0; i<size ; i++){
-			for(int j = 0; j<size ; j++){
-				Tile temp = new Tile();
-				if(checkTile(i, j)){
-					temp.setCharValue('+');
-				}else{
-					temp.setCharValue('-');
-				}
-				board[i][j] = temp;
+		geometry = HexGeometry.of(n);
+		numEdges = geometry.numEdges;
+		numHexes = geometry.numHexes;
+		words = geometry.words;
+		edgeIndex = geometry.edgeIndex;
+		edgeRow = geometry.edgeRow;
+		edgeCol = geometry.edgeCol;
+		hexEdges = geometry.hexEdges;
+		edgeHexes = geometry.edgeHexes;
+		edgeKeys = geometry.symmetricEdgeKeys;
+		blueCellKeys = geometry.symmetricBlueCellKeys;
+		redCellKeys = geometry.symmetricRedCellKeys;
+		hashes = new long[HexGeometry.SYMMETRIES];
+		edgeHashes = new long[HexGeometry.SYMMETRIES];
+
+		// every edge starts as '+'
+		openEdges = new long[words];
+		blueEdges = new long[words];
+		redEdges = new long[words];
+		for(int e = 0; e<numEdges; e++)
+			setBit(openEdges, e);
+		captureValue = new byte[numEdges];
+		hexOpen = new byte[numHexes];
+		Arrays.fill(hexOpen, (byte) 6);
+		possibleMoves = numEdges;
+		if(regions != null)
+			regions.build(openEdges, hexOpen);
+
+		// every edge can be taken at most once
+		journalEdge = new int[numEdges];
+		journalCells = new long[numEdges];
+		journalBlueHex = new int[numEdges];
+		journalRedHex = new int[numEdges];
+	}
+
+
+	/** Make this board a copy of the other board, which must have the
+	 *  same n, so that moves can be made and undone on it separately
+	 * @param other the board to copy
+	 */
+	public void copyFrom(Board other){
+		if(other.n != n)
+			throw new IllegalArgumentException("Copying a board of n="+other.n
+					+" to a board of n="+n);
+		possibleMoves = other.possibleMoves;
+		maxByOneMove = other.maxByOneMove;
+		avlbCaptures = other.avlbCaptures;
+		blueHex = other.blueHex;
+		redHex = other.redHex;
+		System.arraycopy(other.openEdges, 0, openEdges, 0, words);
+		System.arraycopy(other.blueEdges, 0, blueEdges, 0, words);
+		System.arraycopy(other.redEdges, 0, redEdges, 0, words);
+		blueCells = other.blueCells;
+		redCells = other.redCells;
+		System.arraycopy(other.hashes, 0, hashes, 0, HexGeometry.SYMMETRIES);
+		System.arraycopy(other.edgeHashes, 0, edgeHashes, 0, HexGeometry.SYMMETRIES);
+		System.arraycopy(other.captureValue, 0, captureValue, 0, numEdges);
+		System.arraycopy(other.hexOpen, 0, hexOpen, 0, numHexes);
+		doubleCaptures = other.doubleCaptures;
+		if(other.regions != null){
+			if(regions == null)
+				regions = new RegionGraph(n);
+			regions.copyFrom(other.regions);
+		}else if(regions != null){
+			regions.build(openEdges, hexOpen);
+		}
+		journalSize = other.journalSize;
+		System.arraycopy(other.journalEdge, 0, journalEdge, 0, journalSize);
+		System.arraycopy(other.journalCells, 0, journalCells, 0, journalSize);
+		System.arraycopy(other.journalBlueHex, 0, journalBlueHex, 0, journalSize);
+		System.arraycopy(other.journalRedHex, 0, journalRedHex, 0, journalSize);
+	}
+
+
+	/**
+	 * Read a board written in the text format of Part A: n on the first
+	 * line, then 4n-1 lines of 4n-1 characters separated by spaces,
+	 * '+' for an open edge, 'B' or 'R' for an edge taken by blue or red
+	 * and '-' for everything else. The centre of a captured hexagon may
+	 * be 'b' or 'r', as printBoard() prints it, to say who captured it;
+	 * otherwise the cell goes to the player of the edge which completes
+	 * it when the taken edges are taken in row-major order.
+	 * The taken edges are part of the board and can't be undone.
+	 * Blank lines before the board are skipped, so a file can hold
+	 * several boards one after another.
+	 * @param in where to read the board from
+	 * @return the board, or null if there is nothing left to read
+	 * @throws IOException if the text can't be read
+	 * @throws IllegalArgumentException if the text is not a board
+	 */
+	public static Board read(BufferedReader in) throws IOException {
+		String line = in.readLine();
+		while(line != null && line.trim().isEmpty())
+			line = in.readLine();
+		if(line == null)
+			return null;
+
+		int n;
+		try{
+			n = Integer.parseInt(line.trim());
+		}catch(NumberFormatException e){
+			throw new IllegalArgumentException("not the N of a board: "+line);
+		}
+		if(n < 1 || n > 3)
+			throw new IllegalArgumentException("boards of n="+n+" are not supported");
+		Board board = new Board(n);
+		HexGeometry geometry = board.geometry;
+		int size = board.size;
+
+		// take the edges in row-major order, remembering the owners given
+		int[] owners = new int[board.numHexes];
+		for(int i = 0; i<size; i++){
+			line = in.readLine();
+			if(line == null)
+				throw new IllegalArgumentException("board ends after "+i+" lines");
+			String[] tiles = line.trim().split("\\s+");
+			if(tiles.length != size)
+				throw new IllegalArgumentException("line "+(i+1)+" has "
+						+tiles.length+" tiles, not "+size+": "+line);
+			for(int j = 0; j<size; j++){
+				char value = (tiles[j].length() == 1) ? tiles[j].charAt(0) : '?';
+				int e = geometry.edgeIndex(i, j);
+				int h = geometry.hexIndex(i, j);
+				if(e >= 0 && value == 'B')
+					board.setBoard(e, Piece.BLUE);
+				else if(e >= 0 && value == 'R')
+					board.setBoard(e, Piece.RED);
+				else if(h >= 0 && (value == 'b' || value == 'r'))
+					owners[h] = (value == 'b') ? Piece.BLUE : Piece.RED;
+				else if(value != ((e >= 0) ? '+' : '-'))
+					throw new IllegalArgumentException("'"+tiles[j]
+							+"' can't be at "+i+","+j);
 			}
 		}
+
+		// give the cells to the owners given
+		for(int h = 0; h<board.numHexes; h++){
+			if(owners[h] == 0)
+				continue;
+			if(board.hexOpen[h] != 0)
+				throw new IllegalArgumentException("hexagon "+h
+						+" is marked as captured but has open edges");
+			board.setOwner(h, owners[h]);
+		}
+		board.journalSize = 0;
+		return board;
+	}
+
+	/** Give the captured hexagon h to the player p, keeping the
+	 *  counts and the hashes right
+	 */
+	private void setOwner(int h, int p){
+		long cell = 1L << h;
+		boolean blue = (blueCells & cell) != 0;
+		if(blue == (p == Piece.BLUE))
+			return;
+		long[][] from = blue ? blueCellKeys : redCellKeys;
+		long[][] to = blue ? redCellKeys : blueCellKeys;
+		for(int g = 0; g<HexGeometry.SYMMETRIES; g++)
+			hashes[g] ^= from[g][h] ^ to[g][h];
+		if(blue){
+			blueCells &= ~cell;
+			redCells |= cell;
+			blueHex--;
+			redHex++;
+		}else{
+			redCells &= ~cell;
+			blueCells |= cell;
+			redHex--;
+			blueHex++;
+		}
 	}
-	
-	
+
+
 	/**
 	 * Print this board
 	 */
 	public void printBoard(PrintStream output){
 		for(int i = 0; i<size; i++){
 			for(int j = 0; j<size; j++){
-				output.print(board[i][j].getCharValue()+" ");
+				output.print(getCharValue(i, j)+" ");
 			}
 			output.println();
 		}
 		output.println();
 	}
-	
+
 	/**
-	 * Given a tile point using i, j, returns true 
+	 * Return the character of the tile at i, j as it would be printed:
+	 * +, B or R for edges, b or r for captured hexagon centres
+	 * and - for everything else
+	 */
+	public char getCharValue(int i, int j){
+		if(i < 0 || j < 0 || i >= size || j >= size)
+			return '-';
+
+		int e = edgeIndex[i*size+j];
+		if(e >= 0){
+			if(testBit(openEdges, e))
+				return '+';
+			return testBit(blueEdges, e) ? 'B' : 'R';
+		}
+
+		// Centre of a hexagon
+		int h = geometry.hexIndex(i, j);
+		if(h >= 0){
+			if((blueCells & (1L << h)) != 0)
+				return 'b';
+			if((redCells & (1L << h)) != 0)
+				return 'r';
+		}
+		return '-';
+	}
+
+	/**
+	 * Given a tile point using i, j, returns true
 	 * if the tile coordinate is valid
 	 * Valid tiles are tiles that can have +, R or G on it.
-	 * 
+	 *
 	 * Hexagon centers and boundaries therefore return false
 	 */
-	public Boolean checkTile(int i, int j){
-		
-		// Check for array boundary
-		if (i >= size || j >= size)
-			return false;
-		
-		// Check for hexagon boundary
-		// Note: Center of hexagons only occur on odd i, j
-		if (i%2==1 && j%2==1)
-			return false;
-			
-		// Check for game boundary
-		// If j < 2n-1, then for tile to be valid i <= (2n-1)+j
-		// If j > 2n-1, then for tile to be valid i >= j-(2n-1)
-		// If j = 2n-1, then tile is valid
-		int boundary = 2*n-1;	
-		if(!((j < boundary && i <= boundary+j)
-				||(j > boundary && i >= j-boundary)
-				||(j == boundary)))
-			return false;
-		
-		return true;
+	public boolean checkTile(int i, int j){
+		return geometry.isValid(i, j);
 	}
 
 	/** initialise capture value of all tiles as 0
 	*/
 	public void initialiseCaptureValue(){
-		for(int i = 0 ;i<size ; i++){
-			for(int j = 0;j<size; j++){
-				board[i][j].setCaptureValue(0);
-			}
-		}
-
+		Arrays.fill(captureValue, (byte) 0);
 	}
 
 
-	/** Determine captureValue of each tile on the board.
+	/** Determine captureValue of each tile on the board from scratch.
 	 * Simultaneously uses the values to populate avlbCaptures
+	 * setBoard() and undoMove() keep these values up to date themselves,
+	 * so this is only needed to rebuild them
 	 */
 	public void determineCaptureValues(){
 		// initialise capture values as 0 first
 		initialiseCaptureValue();
+		avlbCaptures = 0;
+		maxByOneMove = 0;
+		doubleCaptures = 0;
 
-		// pass the top left tile of each hexagonal cell
-		// to check if this cell can be captured by single move
-		for(int i=0; i<size; i+=2)
-			for(int j=0; j<size ; j+=2)
-				// increase avlbCaptures if this cell is available
-				//for capture by single move 
-				avlbCaptures += determineCaptureValue(i, j);
+		// check if each hexagonal cell can be captured by single move
+		for(int h=0; h<numHexes; h++)
+			// increase avlbCaptures if this cell is available
+			//for capture by single move
+			avlbCaptures += determineCaptureValue(h);
 	}
 
-	
-	/** Determine if the given hexagon by x,y coordinate 
-	 *  can be captured by single move or not
-	 *  and increase the capture value of the available tile by 1
+
+	/** Determine if the given hexagon can be captured by single move or not
+	 *  and increase the capture value of the available edge by 1
 	 *  MaxByOneMove is updated every time this function is called
-	 * @param i x coordinate of the hexagon
-	 * @param j y coordinate of the hexagon
+	 * @param h index of the hexagon
 	 * @return  Returns 1 if hex can be captured, otherwise 0 (counter)
 	 */
-	public int determineCaptureValue(int i, int j){
-		// number of plus char in the hex of the given Tile
-		// there should be only one plus character
+	public int determineCaptureValue(int h){
+		// there should be only one open edge
 		// within this cell to capture it
 		int numPlus = 0;
-		
-		// boundary checking boolean variable
-		boolean isOutOfBound = false;
-		
-		// int Arrays which contain 
-		// x,y coordinates of the 5 adjacent tiles 
-		int[] iValues = {i, i+1, i, i+2, i+1, i+2};
-		int[] jValues = {j, j, j+1, j+1, j+2, j+2};
-		
-		// x,y coordinate of a tile whose capture value will increase by 1
-		// if this cell can be captured by one move
-		int iIncrease = 0, jIncrease = 0;
-		
-		
-		for(int k=0; k<jValues.length && numPlus<=1; k++){
-			// check if this tile is within the available boundary or not
-			if(!checkTile(iValues[k], jValues[k])){
-				isOutOfBound = true;
-				break;
-			}
-
-			// find out the tile whose char value is '+'
-			if(board[iValues[k]][jValues[k]].getCharValue() == '+'){
-				iIncrease = iValues[k];
-				jIncrease = jValues[k];
-				numPlus++;
+		int e = -1;
+		for(int w = 0; w<words; w++){
+			long open = openEdges[w] & hexEdges[h][w];
+			if(open != 0){
+				numPlus += Long.bitCount(open);
+				e = w*64 + Long.numberOfTrailingZeros(open);
 			}
 		}
-		
-		// if there is only one plus '+' character and within boundary 
-		// increase the capture value of the '+' tile object
-		if (numPlus == 1 && !isOutOfBound){
-			board[iIncrease][jIncrease].
-			setCaptureValue(board[iIncrease][jIncrease].getCaptureValue()+1);
-			
+		hexOpen[h] = (byte) numPlus;
+
+		// if there is only one open edge
+		// increase the capture value of that edge
+		if (numPlus == 1){
+			addCaptureValue(e, 1);
+
 			// Use capture value to now determine the max
 			// you can capture in one move
-			if (board[iIncrease][jIncrease].getCaptureValue() > maxByOneMove)
-				maxByOneMove = board[iIncrease][jIncrease].getCaptureValue();
-			
+			if (captureValue[e] > maxByOneMove)
+				maxByOneMove = captureValue[e];
+
 			// Can capture hex
 			return 1;
 		}
-		
+
 		// Can't capture hex
 		return 0;
 	}
-	
+
+	/** Update the capture values of the edges around the hexagons
+	 *  of the edge e, which has just been taken (closed is true)
+	 *  or given back (closed is false).
+	 *  Only a hexagon going from 2 to 1 open edges (or back)
+	 *  changes the capture value of another edge,
+	 *  and only a hexagon going from 1 to 0 (or back) changes
+	 *  the capture value of e itself
+	 */
+	private void updateCaptureValues(int e, boolean closed){
+		for(int h : edgeHexes[e]){
+			int open = hexOpen[h];
+			if(closed){
+				if(open == 1){
+					// e was the last open edge of this cell
+					addCaptureValue(e, -1);
+					avlbCaptures--;
+				}else if(open == 2){
+					// the other open edge can now capture this cell
+					addCaptureValue(otherOpenEdge(h, e), 1);
+					avlbCaptures++;
+				}
+				hexOpen[h]--;
+			}else{
+				if(open == 0){
+					// e is the only open edge of this cell again
+					addCaptureValue(e, 1);
+					avlbCaptures++;
+				}else if(open == 1){
+					// the other open edge can't capture this cell anymore
+					addCaptureValue(otherOpenEdge(h, e), -1);
+					avlbCaptures--;
+				}
+				hexOpen[h]++;
+			}
+		}
+
+		// maximum capture value is 2 at most, since an edge has 2 sides
+		if(doubleCaptures > 0)
+			maxByOneMove = 2;
+		else if(avlbCaptures > 0)
+			maxByOneMove = 1;
+		else
+			maxByOneMove = 0;
+	}
+
+	/** Change the capture value of the edge e by delta
+	 *  while keeping track of edges that can capture two cells
+	 */
+	private void addCaptureValue(int e, int delta){
+		if(captureValue[e] == 2)
+			doubleCaptures--;
+		captureValue[e] += delta;
+		if(captureValue[e] == 2)
+			doubleCaptures++;
+	}
+
+	/** Return the open edge of the hexagon h other than the edge e
+	 *  (the hexagon must have exactly one such edge)
+	 */
+	private int otherOpenEdge(int h, int e){
+		for(int w = 0; w<words; w++){
+			long open = openEdges[w] & hexEdges[h][w];
+			if(w == e >>> 6)
+				open &= ~(1L << e);
+			if(open != 0)
+				return w*64 + Long.numberOfTrailingZeros(open);
+		}
+		return -1;
+	}
+
 	/**
 	 * Undo the given move from the board
+	 * Moves must be undone in the reverse order they were made
 	 * @param move
 	 */
 	public void undoMove(Move move){
-		// set the character as '+'
-		board[move.Row][move.Col].setCharValue('+');
-		
-		// reset maxByOneMove
-		maxByOneMove = 0;
-		
-		// update capture values
-		determineCaptureValues();
-		
-		// get the updated capture value
-		int hexCapted = board[move.Row][move.Col].getCaptureValue();
-		int counter = hexCapted;
-		
-		// retrieve the hexs that captured before by this move
-		if (hexCapted > 0){
-			outerloop:
-			for(int i = 0; i<size; i+=2){
-				for(int j = 0; j<size; j+=2){
-					if(checkTile(i,j) && isCaptured(i, j, move.P) == UNDO){
-						char ch = board[i+1][j+1].getCharValue();
-		
-						// decreased the number of captured cell
-						if(ch == 'b')
-							blueHex--;
-						else
-							redHex--;
-						
-						// update character as '-'
-						board[i+1][j+1].setCharValue('-');
-						counter--;
-					}
-					if(counter <= 0)
-						break outerloop;	
-				}
-			}
-		}
-		
+		undoMove(edgeIndex[move.Row*size+move.Col]);
+	}
+
+	/**
+	 * Undo the move on the edge e from the board
+	 * Moves must be undone in the reverse order they were made
+	 * @param e edge index of the move
+	 */
+	public void undoMove(int e){
+		// pop the journal entry recorded when this move was made
+		if(journalSize == 0 || journalEdge[journalSize-1] != e)
+			throw new IllegalStateException("Undoing "+edgeRow[e]+":"+edgeCol[e]
+					+" which is not the last move made");
+		journalSize--;
+
+		// give back the cells captured by this move
+		long captured = journalCells[journalSize];
+		updateHashes(e, captured, (blueCells & captured) != 0);
+		blueCells &= ~captured;
+		redCells &= ~captured;
+		blueHex = journalBlueHex[journalSize];
+		redHex = journalRedHex[journalSize];
+
+		// set the edge as '+'
+		setBit(openEdges, e);
+		clearBit(blueEdges, e);
+		clearBit(redEdges, e);
+
+		// update capture values and regions around this edge
+		updateCaptureValues(e, false);
+		if(regions != null)
+			regions.giveBackEdge(e, hexOpen);
+
 		// update possible moves
-		getPossibleMoves();
-		
+		possibleMoves++;
+
 	}
-	
+
 	/** Update this board by applying the newly-made move
-	 *  If there is any hexagon captured by this move, put either r or b 
-	 *  at the centre tile 
+	 *  If there is any hexagon captured by this move, mark it as
+	 *  captured by the player who made the move
 	 * @param Move move
 	 * @return 1 if there is any hexagon captured by this move
-	 * 			 otherwise, return 0 
+	 * 			 otherwise, return 0
 	 */
 	public int setBoard(Move move){
-		int hexCapted; // number of hexagons captured by this move
-		int counter;
+		return setBoard(edgeIndex[move.Row*size+move.Col], move.P);
+	}
+
+	/** Update this board by taking the edge e for the player p
+	 *  If there is any hexagon captured by this move, mark it as
+	 *  captured by the player
+	 * @param e edge index of the move
+	 * @param p either BLUE(1) or RED(2)
+	 * @return 1 if there is any hexagon captured by this move
+	 * 			 otherwise, return 0
+	 */
+	public int setBoard(int e, int p){
+		// record the counters so that undoMove() can restore them
+		journalEdge[journalSize] = e;
+		journalBlueHex[journalSize] = blueHex;
+		journalRedHex[journalSize] = redHex;
 
 		// make move
-		if(move.P == Piece.BLUE)
-			board[move.Row][move.Col].setCharValue('B');
+		clearBit(openEdges, e);
+		if(p == Piece.BLUE)
+			setBit(blueEdges, e);
 		else
-			board[move.Row][move.Col].setCharValue('R');
-		
-		// check how many hexagons are captured by this move
-		hexCapted = board[move.Row][move.Col].getCaptureValue();
-		counter = hexCapted;
-
-		// put either b or r at the centre of the hexagons captured
-		if (hexCapted > 0) {
-			outerloop:
-			for(int i = 0; i<size; i+=2){
-				for(int j= 0; j<size; j+=2){
-					// decrease counter by 1 if this cell has been captured
-					if(checkTile(i,j)){
-						counter -= isCaptured(i, j, move.P);
-					}
-					// if there is no cell to capture 
-					// for this move anymore, break
-					if (counter == 0)
-						break outerloop;
-				}
-			}
+			setBit(redEdges, e);
+
+		// the hexagons whose last open edge was this one are captured
+		long captured = 0;
+		for(int h : edgeHexes[e]){
+			if(hexOpen[h] == 1)
+				captured |= 1L << h;
 		}
-		
-		// reset maxByOneMove
-		maxByOneMove = 0;
-	
-		// update capture values of tiles
-		determineCaptureValues();
-		
+		if(p == Piece.BLUE){
+			blueCells |= captured;
+			blueHex += Long.bitCount(captured);
+		}else{
+			redCells |= captured;
+			redHex += Long.bitCount(captured);
+		}
+		journalCells[journalSize++] = captured;
+		updateHashes(e, captured, p == Piece.BLUE);
+
+		// update capture values and regions around this edge
+		updateCaptureValues(e, true);
+		if(regions != null)
+			regions.takeEdge(e, hexOpen);
+
 		// update possible moves
-		getPossibleMoves();
-		
+		possibleMoves--;
+
 		// return value
-		if (hexCapted > 0)
+		if (captured != 0)
 			return 1;
 		else
 			return 0;
-					
-
 	}
-	
-	
-	/**
-	 * Check if this hexagon has been captured
-	 * If captured, put either 'r' or 'b' at the centre tile 
-	 * @return 1 if captured
-	 * 		   otherwise, 0
-	 * If the cell is not supposed to be captured, i.e there is more than one '+'
-	 * but the centre char is not '-'
-	 * return UNDO. This is used for undoMove()
-	 * 
-	 */
-	public int isCaptured(int i, int j, int p){
-		int captured = 1;
-		
-		// int Arrays which contain x,y coordinates of the 5 adjacent tiles 
-		int[] iValues = {i, i+1, i, i+2, i+1, i+2};
-		int[] jValues = {j, j, j+1, j+1, j+2, j+2};
-		
-
-		// check if the 6 tiles are all valid, otherwise return rightaway
-		for(int k = 0; k < jValues.length; k++){ 
-			if( !checkTile(iValues[k], jValues[k]) ){
-				captured = 0;
-				return captured;
-			}
-		}
 
-		// check if this cell has been captured
-		for(int k = 0; k < jValues.length; k++){ 
-			if( board[iValues[k]][jValues[k]].getCharValue() == '+' ){
-				captured = 0;
-				break;
 
-			}
-		}
-		
-		// used for undoMove()
-		if(captured == 0 && board[i+1][j+1].getCharValue() != '-'){
-			return UNDO;
-		}
-		
-		// if this has been already captured before,
-		if(captured == 1 && board[i+1][j+1].getCharValue() != '-' ){
-			captured = 0;
-		}
-		
-		// if captured, set character of the centre tile as either 'b' or 'r'
-		if(captured == 1){
-			if(p == Piece.BLUE){
-				board[i+1][j+1].setCharValue('b');
-				blueHex++;
-			}
-			else if(p == Piece.RED){
-				board[i+1][j+1].setCharValue('r');
-				redHex++;
-			}
-		}
-
-		return captured;
-	}
-	
-	
 	/**
 	 * return all possible moves from the current state
+	 * in random order
 	 * @return array of Moves
 	 */
 	public List<Move> generatePosbMoves(int p){
+		return generatePosbMoves(p, true);
+	}
+
+	/**
+	 * return all possible moves from the current state
+	 * @param shuffle false to keep the moves in row-major order
+	 * @return array of Moves
+	 */
+	public List<Move> generatePosbMoves(int p, boolean shuffle){
 		// allocate List
-		List<Move> posbMoves = new ArrayList<Move>(); 
-		 
-	    // If gameover, i.e., no possible move
-	    if (getPossibleMoves() == 0) {
-	         return posbMoves;   // return empty list
-	    }
-	    
+		List<Move> posbMoves = new ArrayList<Move>(possibleMoves);
+
 	    // get all possible moves('+')
-		int idx = 0;
-		outerloop:
-		for(int i = 0; i<size; i++){
-			for(int j = 0; j<size; j++){
-				if(checkTile(i,j) && board[i][j].getCharValue() == '+'){
-					Move move = new Move();
-					move.Row = i;
-					move.Col = j;
-					move.P = p;
-					posbMoves.add(move);
-					idx++;
-				}
-				
-				// if there is no more possible move to add, break
-				if(idx >= getPossibleMoves()){
-					break outerloop;
-				}
-				
+		for(int w = 0; w<words; w++){
+			long open = openEdges[w];
+			while(open != 0){
+				int e = w*64 + Long.numberOfTrailingZeros(open);
+				open &= open-1;
+
+				Move move = new Move();
+				move.Row = edgeRow[e];
+				move.Col = edgeCol[e];
+				move.P = p;
+				posbMoves.add(move);
 			}
 		}
-		
-		// shuffle array 
+
+		// shuffle array
 		// so that the agent won't just take the first possible move
 		// when most of the moves have the same evaluation value
-		shuffleArray(posbMoves);
-		
+		if(shuffle)
+			shuffleArray(posbMoves);
+
 		return posbMoves;
-		
+
+	}
+
+	/**
+	 * Fill the given array with the edge indices of all possible moves
+	 * from the current state, without allocating anything
+	 * @param edges array to fill, with room for getPossibleMoves() edges
+	 * @param shuffle false to keep the moves in row-major order
+	 * @return the number of possible moves
+	 */
+	public int generatePosbMoves(int[] edges, boolean shuffle){
+		int count = 0;
+		for(int w = 0; w<words; w++){
+			long open = openEdges[w];
+			while(open != 0){
+				edges[count++] = w*64 + Long.numberOfTrailingZeros(open);
+				open &= open-1;
+			}
+		}
+		if(shuffle)
+			shuffleArray(edges, count);
+		return count;
 	}
-	
+
+	/** Shuffle the first count edges of the given array
+	 *
+	 * @param edges array of edge indices
+	 * @param count number of edges in the array
+	 */
+	private void shuffleArray(int[] edges, int count) {
+		for (int i = count - 1; i > 0; i--){
+			int index = random.nextInt(i + 1);
+			int temp = edges[index];
+			edges[index] = edges[i];
+			edges[i] = temp;
+		}
+	}
+
 	/** Shuffle a given Move array
-	 * 
+	 *
 	 * @param posbMoves array of possible moves
 	 */
 	private void shuffleArray(List<Move> posbMoves) {
     	int index;
     	Move temp;
-    	Random random = new Random();
     	for (int i = posbMoves.size() - 1; i > 0; i--){
         	index = random.nextInt(i + 1);
         	temp = posbMoves.get(index);
@@ -422,68 +659,206 @@ public class Board {
         	posbMoves.set(i, temp);
     	}
 	}
-	
-	/** Return the possible moves
-	 * @return the number of possible Moves
+
+	/** Return the number of cells captured by taking the edge e
+	 * @return 0, 1 or 2
 	 */
-	public int getPossibleMoves(){
-		possibleMoves = 0;
-		for(int i = 0; i<size; i++){
-			for(int j = 0; j<size; j++){
-				if(checkTile(i, j))
-					if (board[i][j].getCharValue() == '+')
-						possibleMoves++;
+	public int getCaptureValue(int e){
+		return captureValue[e];
+	}
+
+	/** Return true if taking the edge e neither captures a cell
+	 *  nor lets the next player capture one, i.e. none of its
+	 *  hexagons is left with fewer than 2 open edges
+	 */
+	public boolean isSafe(int e){
+		for(int h : edgeHexes[e]){
+			if(hexOpen[h] <= 2)
+				return false;
+		}
+		return true;
+	}
+
+	/** Return the Zobrist hash of this board
+	 *  Two boards with the same edges taken and the same cells
+	 *  captured by each player have the same hash,
+	 *  whoever took the edges and in whatever order
+	 * @return hash of the board
+	 */
+	public long getHash(){
+		return hashes[0];
+	}
+
+	/** Return the Zobrist hash of this board after the symmetry g
+	 *  (see HexGeometry)
+	 */
+	public long getHash(int g){
+		return hashes[g];
+	}
+
+	/** Return the symmetry which takes this board to its canonical form,
+	 *  the form of the board with the lowest hash. Boards which are
+	 *  rotations or reflections of each other have the same canonical
+	 *  form, so getHash(getCanonicalSymmetry()) is the same for all of them
+	 */
+	public int getCanonicalSymmetry(){
+		return lowest(hashes);
+	}
+
+	/** Return the Zobrist hash of the taken edges of this board
+	 *  The edges decide everything that can still happen in the game,
+	 *  so positions with the same edges taken have the same future
+	 *  whoever owns the captured cells
+	 * @return hash of the taken edges
+	 */
+	public long getEdgeHash(){
+		return edgeHashes[0];
+	}
+
+	/** Return the Zobrist hash of the taken edges of this board
+	 *  after the symmetry g
+	 */
+	public long getEdgeHash(int g){
+		return edgeHashes[g];
+	}
+
+	/** Return the symmetry which takes the taken edges of this board
+	 *  to their canonical form, the form with the lowest edge hash
+	 */
+	public int getCanonicalEdgeSymmetry(){
+		return lowest(edgeHashes);
+	}
+
+	/** Return the index of the lowest of the given hashes */
+	private static int lowest(long[] hashes){
+		int lowest = 0;
+		for(int g = 1; g<hashes.length; g++){
+			if(hashes[g] < hashes[lowest])
+				lowest = g;
+		}
+		return lowest;
+	}
+
+	/** Return the number of hexagonal cells not captured yet */
+	public int getFreeCells(){
+		return numHexes - blueHex - redHex;
+	}
+
+	/** XOR the keys of the edge e and the given captured cells into the
+	 *  hashes of every symmetry, to take or give them back
+	 * @param e the edge
+	 * @param captured bit set of the hexagons captured by taking e
+	 * @param blue true for cells captured by blue, false for red
+	 */
+	private void updateHashes(int e, long captured, boolean blue){
+		for(int g = 0; g<HexGeometry.SYMMETRIES; g++){
+			long key = edgeKeys[g][e];
+			edgeHashes[g] ^= key;
+			hashes[g] ^= key;
+		}
+		if(captured != 0){
+			long[][] cellKeys = blue ? blueCellKeys : redCellKeys;
+			for(int g = 0; g<HexGeometry.SYMMETRIES; g++){
+				for(long cells = captured; cells != 0; cells &= cells-1)
+					hashes[g] ^= cellKeys[g][Long.numberOfTrailingZeros(cells)];
 			}
 		}
+	}
 
+	/** Return the edge index of the move, -1 if it is not an edge
+	 */
+	public int getEdgeIndex(Move move){
+		return geometry.edgeIndex(move.Row, move.Col);
+	}
+
+	/** Return the row of the edge with the given index */
+	public int getEdgeRow(int e){
+		return edgeRow[e];
+	}
+
+	/** Return the column of the edge with the given index */
+	public int getEdgeCol(int e){
+		return edgeCol[e];
+	}
+
+	/** Return the possible moves
+	 * @return the number of possible Moves
+	 */
+	public int getPossibleMoves(){
 		return possibleMoves;
 	}
-	
+
 	/** Return available cells for capture
 	 * @return Number of hex cells available for capture by a single move
 	 */
 	public int getAvailableCaptures(){
 		return avlbCaptures;
 	}
-	
+
 	/** Return maximum number of cells which can be captured by one move
 	 * @return maximum number of hexs which can be captured by one move
 	 */
 	public int getMaxByOneMove(){
 		return maxByOneMove;
 	}
-	
-	/** Return maximum streak possible by one player on the current board
-	 * @return maximum number of streaks
-	 */
-	public int getMaxStreak(int depthCap, int score){
-		// No available captures - Streak ended
-		if(avlbCaptures == 0) return 0;
-		
-		for(int i=0; i<size; i++) {
-			for(int j=0; j<size; j++) {
-				if(checkTile(i, j)) {
-					// Is there a hex available for capture?
-					int captureValue = board[i][j].getCaptureValue();
-					if(captureValue > 0) {
-						// Make the move, get score, then undo move
-						Move tempMove = new Move();
-						tempMove.P = Piece.BLUE;
-						tempMove.Row = i;
-						tempMove.Col = j;
-						setBoard(tempMove);
-						// Recursively get the rest of the streak
-						if(score < depthCap)
-							score = 
-							getMaxStreak(depthCap, score) + captureValue;
-						undoMove(tempMove);
-						if(score >= depthCap) return score;
-					}
-				}
-			}
+
+	/** Return the number of open edges of the hexagon h
+	 * @return 0 to 6, 0 once it has been captured
+	 */
+	public int getHexOpen(int h){
+		return hexOpen[h];
+	}
+
+	/** Return the number of cells in the region of the hexagon h,
+	 *  i.e. the cells joined to it through open edges, itself included
+	 */
+	public int getRegionSize(int h){
+		return regions().getRegionSize(h);
+	}
+
+	/** Return the number of cells with exactly two open edges
+	 */
+	public int getTwoEdgeCells(){
+		return regions().getTwoEdgeCells();
+	}
+
+	/** Return the number of chains of cells with two open edges,
+	 *  not counting loops
+	 */
+	public int getChains(){
+		return regions().getChains();
+	}
+
+	/** Return the region graph of the board, building it the first
+	 *  time it is asked for, after which every move and undo keeps it
+	 *  up to date */
+	private RegionGraph regions(){
+		if(regions == null){
+			regions = new RegionGraph(n);
+			regions.build(openEdges, hexOpen);
 		}
-		return score;
+		return regions;
 	}
-}
 
+	/** Return one word of the bit set of open edges,
+	 *  holding the edges 64*w to 64*w+63
+	 */
+	public long getOpenEdges(int w){
+		return openEdges[w];
+	}
 
+	/** Set the bit of the edge e in the given bit set */
+	private static void setBit(long[] bits, int e){
+		bits[e >>> 6] |= 1L << e;
+	}
+
+	/** Clear the bit of the edge e in the given bit set */
+	private static void clearBit(long[] bits, int e){
+		bits[e >>> 6] &= ~(1L << e);
+	}
+
+	/** Return true if the bit of the edge e is set in the given bit set */
+	private static boolean testBit(long[] bits, int e){
+		return (bits[e >>> 6] & (1L << e)) != 0;
+	}
+}
@@ -0,0 +1,207 @@
+/** BoardBenchmark class for measuring how fast the Board primitives the
+ * search relies on are, so that a change to Board can be shown to make
+ * them faster or slower.
+ *
+ * Each benchmark runs one primitive over and over on fixed positions:
+ * early, middle and late positions of n=2 and n=3 games, reached by
+ * random moves from the same seed every run with 90%, 50% and 20% of the
+ * edges left open. A benchmark is run for WARMUP iterations, so that the
+ * JIT has compiled it, and then timed for ITERATIONS iterations of about
+ * the same length. For each benchmark and position it prints
+ * - ops/s: operations per second, the mean of the timed iterations,
+ * - +-: the standard deviation of ops/s between iterations, and
+ * - B/op: bytes allocated per operation by the benchmark thread.
+ * Every result is added to a sink printed at the end, so that the JIT
+ * can't leave out work whose result is never used.
+ *
+ * usage: java BoardBenchmark [name filter] [ms per iteration]
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import aiproj.hexifence.*;
+
+public class BoardBenchmark implements Piece {
+
+	// Default length of an iteration in milliseconds
+	public static final int ITERATION_MILLIS = 200;
+	// Iterations to warm up with, then iterations timed
+	public static final int WARMUP = 5;
+	public static final int ITERATIONS = 10;
+	// Operations run between looks at the clock
+	public static final int BATCH = 1024;
+
+	// Seed of the random moves leading to the positions
+	public static final long SEED = 2017;
+	// Names of the positions and the share of the edges left open in each
+	public static final String[] STAGES = {"early", "middle", "late"};
+	public static final double[] OPEN = {0.9, 0.5, 0.2};
+
+	/** One operation on a board, returning something to keep
+	 *  the JIT from leaving it out */
+	public interface Operation {
+		long run();
+	}
+
+	// sum of every result, printed at the end
+	private static long sink = 0;
+
+
+	public static void main(String[] args){
+		String filter = (args.length > 0) ? args[0] : "";
+		long millis = (args.length > 1) ? Long.parseLong(args[1]) : ITERATION_MILLIS;
+
+		System.out.printf("%-24s %-8s %14s %12s %10s%n",
+				"benchmark", "position", "ops/s", "+-", "B/op");
+		for (int n = 2; n <= 3; n++) {
+			for (int s = 0; s < STAGES.length; s++) {
+				Board board = position(n, OPEN[s]);
+				for (Map.Entry<String, Operation> benchmark
+						: benchmarks(board).entrySet()) {
+					if (!benchmark.getKey().contains(filter))
+						continue;
+					double[] result = measure(benchmark.getValue(), millis);
+					System.out.printf("%-24s %-8s %14.0f %12.0f %10.1f%n",
+							benchmark.getKey(), "n="+n+" "+STAGES[s],
+							result[0], result[1], result[2]);
+				}
+			}
+		}
+		System.out.println("sink "+sink);
+	}
+
+	/**
+	 * Return the benchmarks to run on a board, by name
+	 * @param board the board, which each benchmark leaves as it found it
+	 */
+	public static Map<String, Operation> benchmarks(final Board board){
+		final int[] edges = new int[HexGeometry.of(board.n).numEdges];
+		final int count = board.generatePosbMoves(edges, false);
+		final ChainAnalyser chains = new ChainAnalyser(board);
+		Map<String, Operation> benchmarks = new LinkedHashMap<String, Operation>();
+
+		// one round trip per open edge in turn
+		benchmarks.put("setBoard+undoMove", new Operation() {
+			int k = 0;
+			public long run(){
+				int e = edges[k];
+				k = (k + 1 == count) ? 0 : k + 1;
+				long captured = board.setBoard(e, BLUE);
+				board.undoMove(e);
+				return captured;
+			}
+		});
+		benchmarks.put("generatePosbMoves(int[])", new Operation() {
+			public long run(){
+				return board.generatePosbMoves(edges, false);
+			}
+		});
+		benchmarks.put("generatePosbMoves(List)", new Operation() {
+			public long run(){
+				return board.generatePosbMoves(BLUE, false).size();
+			}
+		});
+		benchmarks.put("determineCaptureValues", new Operation() {
+			public long run(){
+				board.determineCaptureValues();
+				return board.getAvailableCaptures();
+			}
+		});
+		// what getMaxStreak used to work out
+		benchmarks.put("countStreak", new Operation() {
+			public long run(){
+				return chains.countStreak();
+			}
+		});
+		benchmarks.put("getPossibleMoves", new Operation() {
+			public long run(){
+				return board.getPossibleMoves();
+			}
+		});
+		return benchmarks;
+	}
+
+	/**
+	 * Return the board after random moves from the seed, with the given
+	 * share of the edges left open
+	 * @param n the N value of the board
+	 * @param open share of the edges to leave open
+	 */
+	public static Board position(int n, double open){
+		Board board = new Board(n);
+		Random random = new Random(SEED);
+		int[] edges = new int[HexGeometry.of(n).numEdges];
+		int left = (int) Math.round(open * edges.length);
+		int p = BLUE;
+		while (board.getPossibleMoves() > left) {
+			int count = board.generatePosbMoves(edges, false);
+			// after a capture the same player moves again
+			if (board.setBoard(edges[random.nextInt(count)], p) == 0)
+				p = (p == BLUE) ? RED : BLUE;
+		}
+		return board;
+	}
+
+	/**
+	 * Run an operation for WARMUP iterations and then time it
+	 * for ITERATIONS iterations
+	 * @param millis length of an iteration in milliseconds
+	 * @return {mean ops/s, standard deviation of ops/s, bytes per op}
+	 */
+	public static double[] measure(Operation operation, long millis){
+		for (int k = 0; k < WARMUP; k++)
+			iteration(operation, millis);
+
+		double sum = 0;
+		double squares = 0;
+		long ops = 0;
+		long allocated = allocatedBytes();
+		for (int k = 0; k < ITERATIONS; k++) {
+			long[] iteration = iteration(operation, millis);
+			double rate = iteration[0] * 1e9 / iteration[1];
+			sum += rate;
+			squares += rate*rate;
+			ops += iteration[0];
+		}
+		allocated = allocatedBytes() - allocated;
+
+		double mean = sum / ITERATIONS;
+		double deviation = Math.sqrt(Math.max(0, squares/ITERATIONS - mean*mean));
+		return new double[] {mean, deviation,
+				(allocated < 0) ? Double.NaN : (double) allocated / ops};
+	}
+
+	/**
+	 * Run an operation in batches of BATCH until the time is up
+	 * @return {operations run, nanoseconds taken}
+	 */
+	private static long[] iteration(Operation operation, long millis){
+		long result = 0;
+		long ops = 0;
+		long start = System.nanoTime();
+		long end = start + millis*1000000L;
+		long now;
+		do {
+			for (int k = 0; k < BATCH; k++)
+				result += operation.run();
+			ops += BATCH;
+			now = System.nanoTime();
+		} while (now < end);
+		sink += result;
+		return new long[] {ops, now - start};
+	}
+
+	/** Return the bytes allocated by this thread so far, or a negative
+	 *  number if the JVM can't tell */
+	private static long allocatedBytes(){
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		return ((com.sun.management.ThreadMXBean) threads)
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
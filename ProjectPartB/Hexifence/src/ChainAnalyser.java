@@ -0,0 +1,227 @@
+/** ChainAnalyser class for looking at a board the strings-and-coins way:
+ * every cell still to be captured is a coin and every open edge a string
+ * tying it to the cell on its other side, or to the ground at the edge
+ * of the board. A cell with one string left can be captured, and
+ * capturing it cuts the string to the next cell, so captures run along
+ * chains of cells with two strings each.
+ *
+ * analyse() works out, without making any moves on the board,
+ * - the streak: the cells the player to move can capture in a row, and
+ * - the chains and loops of two-string cells left once the streak
+ *   has been taken, which decide who has to open them up later.
+ *
+ * Both take time linear in the number of cells. The arrays used are
+ * made once, so an analyser can be kept with a board and used at
+ * every leaf of the search.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+public class ChainAnalyser {
+
+	// Chains of at least this many cells are long chains
+	public static final int LONG_CHAIN = 3;
+
+	private final Board board; // the board to analyse
+	private final int numHexes; // Number of hexagonal cells on the board
+	private final int words; // Number of longs needed to hold one bit per edge
+	private final int[][] hexEdgeList; // Indices of the 6 edges of each hexagon
+	private final int[][] edgeHexes; // Indices of the 1 or 2 hexagons of each edge
+
+	// The board as the analysis takes the streak
+	private final long[] openEdges; // edges still open
+	private final byte[] hexOpen; // number of open edges of each hexagon
+	private final int[] queue; // hexagons which can be captured
+	private long captured; // hexagons captured, before or by the streak
+	private long visited; // hexagons already put in a chain or loop
+	private boolean looped; // true if the last follow() came back to its start
+
+	// Results of the last analyse()
+	private int streak; // cells the player to move can capture in a row
+	private int chains; // chains of cells with two open edges
+	private int longChains; // chains of at least LONG_CHAIN cells
+	private int loops; // loops of cells with two open edges
+	private int chainCells; // cells in all the chains and loops
+
+
+	/** constructor
+	 * @param board the board to analyse
+	 */
+	public ChainAnalyser(Board board){
+		HexGeometry geometry = HexGeometry.of(board.n);
+		this.board = board;
+		this.numHexes = geometry.numHexes;
+		this.words = geometry.words;
+		this.hexEdgeList = geometry.hexEdgeList;
+		this.edgeHexes = geometry.edgeHexes;
+		openEdges = new long[words];
+		hexOpen = new byte[numHexes];
+		queue = new int[numHexes];
+	}
+
+	/** Analyse the current state of the board
+	 */
+	public void analyse(){
+		takeStreak();
+		findChains();
+	}
+
+	/** Return the number of cells the player to move can capture in a row
+	 *  without analysing the chains left after it
+	 */
+	public int countStreak(){
+		takeStreak();
+		return streak;
+	}
+
+	/**
+	 * Capture everything that can be captured in a row, keeping count,
+	 * on a copy of the open edges of the board
+	 */
+	private void takeStreak(){
+		for(int w = 0; w<words; w++)
+			openEdges[w] = board.getOpenEdges(w);
+		int head = 0;
+		int tail = 0;
+		captured = 0;
+		streak = 0;
+		for(int h = 0; h<numHexes; h++){
+			hexOpen[h] = (byte) board.getHexOpen(h);
+			if(hexOpen[h] == 0)
+				captured |= 1L << h;
+			else if(hexOpen[h] == 1)
+				queue[tail++] = h;
+		}
+
+		while(head < tail){
+			int h = queue[head++];
+			if((captured & (1L << h)) != 0)
+				continue;
+
+			// take the last open edge of the cell
+			int e = openEdge(h, -1);
+			openEdges[e >>> 6] &= ~(1L << e);
+			hexOpen[h] = 0;
+			captured |= 1L << h;
+			streak++;
+
+			// which leaves the cell on the other side one edge fewer
+			int g = otherHex(e, h);
+			if(g < 0)
+				continue;
+			hexOpen[g]--;
+			if(hexOpen[g] == 0){
+				// both cells captured by the same edge
+				captured |= 1L << g;
+				streak++;
+			}else if(hexOpen[g] == 1){
+				queue[tail++] = g;
+			}
+		}
+	}
+
+	/**
+	 * Split the cells with two open edges left after the streak
+	 * into chains and loops
+	 */
+	private void findChains(){
+		visited = 0;
+		chains = 0;
+		longChains = 0;
+		loops = 0;
+		chainCells = 0;
+		for(int h = 0; h<numHexes; h++){
+			if(hexOpen[h] != 2 || (visited & (1L << h)) != 0)
+				continue;
+			visited |= 1L << h;
+
+			// follow the chain out of both open edges of the cell
+			int first = openEdge(h, -1);
+			int length = 1 + follow(h, first);
+			if(looped){
+				// came back round to the start
+				loops++;
+				chainCells += length;
+				continue;
+			}
+			length += follow(h, openEdge(h, first));
+
+			chains++;
+			if(length >= LONG_CHAIN)
+				longChains++;
+			chainCells += length;
+		}
+	}
+
+	/**
+	 * Walk along a chain from the cell h out through its open edge e,
+	 * marking every two-edge cell passed as visited.
+	 * Sets looped if the walk comes back round to h
+	 * @return the number of cells passed, not counting h
+	 */
+	private int follow(int h, int e){
+		int walked = 0;
+		int from = h;
+		looped = false;
+		while(true){
+			int g = otherHex(e, from);
+			if(g == h){
+				looped = true;
+				return walked;
+			}
+			if(g < 0 || hexOpen[g] != 2 || (visited & (1L << g)) != 0)
+				return walked;
+			visited |= 1L << g;
+			walked++;
+			e = openEdge(g, e);
+			from = g;
+		}
+	}
+
+	/** Return the first open edge of the hexagon h other than the edge skip */
+	private int openEdge(int h, int skip){
+		for(int e : hexEdgeList[h]){
+			if(e != skip && (openEdges[e >>> 6] & (1L << e)) != 0)
+				return e;
+		}
+		return -1;
+	}
+
+	/** Return the hexagon on the other side of the edge e from h,
+	 *  or -1 if e is on the edge of the board */
+	private int otherHex(int e, int h){
+		int[] hexes = edgeHexes[e];
+		if(hexes.length < 2)
+			return -1;
+		return (hexes[0] == h) ? hexes[1] : hexes[0];
+	}
+
+	/** Return the number of cells the player to move can capture in a row */
+	public int getStreak(){
+		return streak;
+	}
+
+	/** Return the number of chains left after the streak */
+	public int getChains(){
+		return chains;
+	}
+
+	/** Return the number of chains of at least LONG_CHAIN cells
+	 *  left after the streak */
+	public int getLongChains(){
+		return longChains;
+	}
+
+	/** Return the number of loops left after the streak */
+	public int getLoops(){
+		return loops;
+	}
+
+	/** Return the number of cells in the chains and loops
+	 *  left after the streak */
+	public int getChainCells(){
+		return chainCells;
+	}
+}
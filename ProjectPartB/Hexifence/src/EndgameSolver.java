@@ -0,0 +1,231 @@
+/** EndgameSolver class for playing perfectly once few edges are left.
+ *
+ * Instead of searching to a depth and guessing the rest with the
+ * evaluation function, the solver searches every line to the end of
+ * the game. The value of a position is the margin, the cells the player
+ * to move will still capture less the cells the other player will,
+ * which only depends on the edges taken so far:
+ * - after a move capturing c cells, the same player moves again,
+ *   so the move is worth c plus the value of the position after it
+ * - after any other move, the other player moves,
+ *   so the move is worth minus the value of the position after it
+ *
+ * Positions are remembered in a transposition table by the hash of
+ * their taken edges, and a line is cut off once even winning (or losing)
+ * every cell left could not change the result.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import aiproj.hexifence.*;
+
+public class EndgameSolver implements Piece {
+
+	// Move ordering keys, tried from the highest key down
+	public static final int TT_MOVE_KEY = 1 << 30; // best move found before
+	public static final int CAPTURE_KEY = 3 << 27; // + number of cells captured
+	public static final int SAFE_KEY = 2 << 27; // gives nothing away
+	public static final int OTHER_KEY = 1 << 27; // everything else
+
+	public Board board; // the board to solve on
+	private HexGeometry geometry; // index tables and symmetries of the board
+	public TranspositionTable table; // margins of positions solved before
+
+	private long deadline; // System.nanoTime() at which to give up
+	private boolean timeUp; // true once the solver has given up
+	public long nodes = 0; // positions solved, never reset by the solver
+	private int clock; // nodes searched since the last look at the clock
+
+	private int ply; // number of moves made below the root
+	// possible moves and their ordering keys, by ply
+	private int[][] moveStack;
+	private int[][] keyStack;
+
+
+	/** constructor
+	 * @param board the board to solve on
+	 * @param table the transposition table to remember margins in,
+	 * 		  which must not be shared with a Searcher
+	 */
+	public EndgameSolver(Board board, TranspositionTable table){
+		this.board = board;
+		this.table = table;
+		this.geometry = HexGeometry.of(board.n);
+		int edges = geometry.numEdges;
+		moveStack = new int[edges+1][edges];
+		keyStack = new int[edges+1][edges];
+	}
+
+	/**
+	 * Solve the position on the board to the end of the game
+	 * @param p either BLUE(1) or RED(2), the player to move
+	 * @param deadline System.nanoTime() at which to give up
+	 * @return {margin, row, col} of the best move for p, where margin is
+	 * 		   p's cells less the other player's at the end of the game,
+	 * 		   or null if the time was up before the position was solved
+	 */
+	public int[] solve(int p, long deadline){
+		this.deadline = deadline;
+		this.timeUp = false;
+		this.clock = 0;
+		table.newSearch();
+
+		// the first move with the best margin
+		int[] edges = moveStack[ply];
+		int count = board.generatePosbMoves(edges, false);
+		int symmetry = board.getCanonicalEdgeSymmetry();
+		long entry = table.probe(board.getEdgeHash(symmetry));
+		orderMoves(edges, keyStack[ply], count,
+				(entry != 0) ? fromCanonical(symmetry, TranspositionTable.move(entry)) : -1);
+		int best = Integer.MIN_VALUE;
+		int bestEdge = -1;
+		for (int k = 0; k < count; k++) {
+			int e = edges[k];
+			int alpha = (best == Integer.MIN_VALUE) ? -board.getFreeCells() - 1 : best;
+			int score = solveMove(e, p, alpha, board.getFreeCells() + 1);
+			if (timeUp)
+				return null;
+			if (score > best) {
+				best = score;
+				bestEdge = e;
+			}
+		}
+
+		int mine = (p == BLUE) ? board.blueHex : board.redHex;
+		int theirs = (p == BLUE) ? board.redHex : board.blueHex;
+		return new int[] {mine - theirs + best,
+				board.getEdgeRow(bestEdge), board.getEdgeCol(bestEdge)};
+	}
+
+	/** Return true if the last solve() gave up before it finished
+	 */
+	public boolean isTimeUp(){
+		return timeUp;
+	}
+
+	/**
+	 * Return the margin of taking the edge e for the player p
+	 * within the window alpha to beta
+	 */
+	private int solveMove(int e, int p, int alpha, int beta){
+		int captured = board.getCaptureValue(e);
+		board.setBoard(e, p);
+		ply++;
+		int score;
+		if (captured > 0)
+			score = captured + margin(p, alpha - captured, beta - captured);
+		else
+			score = -margin((p == BLUE) ? RED : BLUE, -beta, -alpha);
+		ply--;
+		board.undoMove(e);
+		return score;
+	}
+
+	/**
+	 * Return the margin of the player p, who is to move, from the position
+	 * on the board to the end of the game, if it is between alpha and beta.
+	 * Otherwise return alpha if it is no more than alpha,
+	 * or beta if it is at least beta
+	 */
+	private int margin(int p, int alpha, int beta){
+		nodes++;
+		// give up once the time for this move is up
+		if (++clock >= Searcher.CLOCK_INTERVAL) {
+			clock = 0;
+			if (System.nanoTime() >= deadline)
+				timeUp = true;
+		}
+		if (timeUp || board.getPossibleMoves() == 0)
+			return 0;
+
+		// no line can win or lose more than every cell left
+		int free = board.getFreeCells();
+		if (free <= alpha)
+			return alpha;
+		if (-free >= beta)
+			return beta;
+
+		// use the margin if this position, or a rotation or reflection
+		// of it, has been solved before and the bound is good enough
+		int symmetry = board.getCanonicalEdgeSymmetry();
+		long hash = board.getEdgeHash(symmetry);
+		long entry = table.probe(hash);
+		int ttEdge = (entry != 0)
+				? fromCanonical(symmetry, TranspositionTable.move(entry)) : -1;
+		if (entry != 0) {
+			int stored = TranspositionTable.score(entry);
+			int bound = TranspositionTable.bound(entry);
+			if (bound == TranspositionTable.EXACT)
+				return Math.max(alpha, Math.min(beta, stored));
+			if (bound == TranspositionTable.LOWER && stored >= beta)
+				return beta;
+			if (bound == TranspositionTable.UPPER && stored <= alpha)
+				return alpha;
+		}
+
+		int alphaOrig = alpha;
+		int[] edges = moveStack[ply];
+		int count = board.generatePosbMoves(edges, false);
+		orderMoves(edges, keyStack[ply], count, ttEdge);
+		int bestEdge = -1;
+		for (int k = 0; k < count; k++) {
+			int e = edges[k];
+			int score = solveMove(e, p, alpha, beta);
+			if (timeUp)
+				return 0;
+			if (score > alpha) {
+				alpha = score;
+				bestEdge = e;
+				if (alpha >= beta)
+					break;
+			}
+		}
+
+		// remember the result with the kind of bound it is
+		int bound = (alpha <= alphaOrig) ? TranspositionTable.UPPER
+				: (alpha >= beta) ? TranspositionTable.LOWER
+				: TranspositionTable.EXACT;
+		table.store(hash, alpha, Searcher.FINAL_DEPTH, bound,
+				(bestEdge < 0) ? -1 : geometry.symmetricEdge(symmetry, bestEdge));
+		return alpha;
+	}
+
+	/** Return the edge e of the board after the symmetry g
+	 *  as it is on the board, or -1 if e is -1 */
+	private int fromCanonical(int g, int e){
+		return (e < 0) ? -1 : geometry.symmetricEdge(geometry.inverseSymmetry(g), e);
+	}
+
+	/**
+	 * Sort the moves so that the best move found before comes first,
+	 * then moves which capture, then moves which give nothing away,
+	 * then the rest
+	 */
+	private void orderMoves(int[] edges, int[] keys, int count, int ttEdge){
+		for (int k = 0; k < count; k++) {
+			int e = edges[k];
+			if (e == ttEdge)
+				keys[k] = TT_MOVE_KEY;
+			else if (board.getCaptureValue(e) > 0)
+				keys[k] = CAPTURE_KEY + board.getCaptureValue(e);
+			else
+				keys[k] = board.isSafe(e) ? SAFE_KEY : OTHER_KEY;
+		}
+
+		// insertion sort from the highest key down
+		for (int k = 1; k < count; k++) {
+			int e = edges[k];
+			int key = keys[k];
+			int m = k - 1;
+			while (m >= 0 && keys[m] < key) {
+				keys[m+1] = keys[m];
+				edges[m+1] = edges[m];
+				m--;
+			}
+			keys[m+1] = key;
+			edges[m+1] = e;
+		}
+	}
+}
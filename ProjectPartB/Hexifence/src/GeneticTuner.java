@@ -0,0 +1,321 @@
+/** GeneticTuner class for tuning the Weights of the evaluation function
+ * of SongtNmirpuri with a genetic algorithm.
+ *
+ * Each generation is a population of Weights. Every member plays the same
+ * number of games against a player with the default weights, from the
+ * same random openings, and its fitness is its score in those games,
+ * ties broken by the mean margin of cells. The games of the whole
+ * population are shared out over a pool of worker threads at once. The
+ * next generation keeps the ELITE fittest members and fills up with
+ * children, each made by uniform crossover of two parents picked by
+ * tournament selection, and then mutated: each weight changes with
+ * probability MUTATION by a random amount of about a quarter of itself.
+ *
+ * The random choices of each generation come from a Random seeded with
+ * the seed of the run and the number of the generation, so a run with
+ * the same seed makes the same choices given the same fitnesses (the
+ * games themselves depend on timing, as the players search against the
+ * clock). After every generation the next population is written to a
+ * checkpoint file; started with a checkpoint file which exists, the
+ * tuner carries on from where it stopped.
+ *
+ * usage: java GeneticTuner <checkpoint file> [n] [generations] [population]
+ * 		  [games per member] [threads] [seed]
+ * Games are played with -Dhexifence.move.ms=20 unless it is given.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import aiproj.hexifence.*;
+
+public class GeneticTuner {
+
+	// Defaults of the command line arguments
+	public static final int N = 3;
+	public static final int GENERATIONS = 30;
+	public static final int POPULATION = 16;
+	public static final int GAMES = 20;
+	public static final long SEED = 2017;
+	// Default time budget of each move while tuning in milliseconds
+	public static final int MOVE_MILLIS = 20;
+
+	// Members kept unchanged in the next generation
+	public static final int ELITE = 2;
+	// Members taking part in each tournament selection
+	public static final int SELECTION = 3;
+	// Probability of each weight being mutated
+	public static final double MUTATION = 0.3;
+	// Weights changed by the tuner, by index in Weights.NAMES;
+	// safestMove is not used by the evaluation function
+	public static final int[] TUNED = {1, 2, 3, 4, 5};
+
+	public final int n; // the N value of the boards played on
+	public final long seed; // seed of the whole run
+	public final int games; // games played by each member
+	public final int threads; // games played at once
+
+	public int generation = 0; // number of the generation to evaluate next
+	public List<Weights> population = new ArrayList<Weights>();
+	// fittest member so far, with its score and mean margin
+	public Weights best;
+	public double bestScore = -1;
+	public double bestMargin;
+
+
+	/** constructor, with a first population of the default weights
+	 *  and mutations of them
+	 * @param n the N value of the boards to play on
+	 * @param size number of members of each generation
+	 * @param games number of games played by each member
+	 * @param threads number of games to play at once
+	 * @param seed seed of the run
+	 */
+	public GeneticTuner(int n, int size, int games, int threads, long seed){
+		this.n = n;
+		this.games = games;
+		this.threads = threads;
+		this.seed = seed;
+		Random random = new Random(seed);
+		population.add(new Weights());
+		while (population.size() < size)
+			population.add(mutate(new Weights(), random));
+	}
+
+	/**
+	 * Evaluate the current generation and make the next one
+	 */
+	public void step() throws InterruptedException, ExecutionException {
+		Random random = random(generation);
+		final int size = population.size();
+		final Tournament[] tournaments = new Tournament[size];
+		long openingSeed = random.nextLong();
+		for (int i = 0; i < size; i++) {
+			final Weights weights = population.get(i);
+			tournaments[i] = new Tournament(n,
+					new Supplier<Player>() {
+						public Player get(){ return new SongtNmirpuri(weights); }
+					},
+					new Supplier<Player>() {
+						public Player get(){ return new SongtNmirpuri(new Weights()); }
+					},
+					weights.toString(), "default");
+			tournaments[i].output = null;
+			tournaments[i].openingMoves = Match.OPENING_MOVES;
+			tournaments[i].openingSeed = openingSeed;
+		}
+
+		// every game of every member on the one pool
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+			for (int k = 0; k < games; k++) {
+				for (int i = 0; i < size; i++) {
+					final Tournament tournament = tournaments[i];
+					final int game = k;
+					tasks.add(Executors.callable(new Runnable() {
+						public void run(){
+							tournament.record(tournament.playGame(game));
+						}
+					}));
+				}
+			}
+			for (Future<Object> task : pool.invokeAll(tasks))
+				task.get();
+		} finally {
+			pool.shutdown();
+		}
+
+		// fittest first
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b){
+				return compareFitness(tournaments[b], tournaments[a]);
+			}
+		});
+		Tournament fittest = tournaments[order[0]];
+		if (best == null || fittest.getScore() > bestScore
+				|| (fittest.getScore() == bestScore && fittest.getMeanMargin() > bestMargin)) {
+			best = population.get(order[0]);
+			bestScore = fittest.getScore();
+			bestMargin = fittest.getMeanMargin();
+		}
+		double mean = 0;
+		for (Tournament tournament : tournaments)
+			mean += tournament.getScore() / size;
+		System.out.printf("generation %d: best %.1f%% margin %+.2f %s, mean %.1f%%%n",
+				generation, 100*fittest.getScore(), fittest.getMeanMargin(),
+				population.get(order[0]), 100*mean);
+
+		// the next generation
+		List<Weights> next = new ArrayList<Weights>();
+		for (int k = 0; k < Math.min(ELITE, size); k++)
+			next.add(population.get(order[k]));
+		while (next.size() < size) {
+			Weights mother = population.get(select(order, random));
+			Weights father = population.get(select(order, random));
+			next.add(mutate(crossover(mother, father, random), random));
+		}
+		population = next;
+		generation++;
+	}
+
+	/** Return a negative number, zero or a positive number as the
+	 *  first tournament's player is less, as or more fit than the second's */
+	private static int compareFitness(Tournament a, Tournament b){
+		int compare = Double.compare(a.getScore(), b.getScore());
+		if (compare == 0)
+			compare = Double.compare(a.getMeanMargin(), b.getMeanMargin());
+		return compare;
+	}
+
+	/** Return the Random of the given generation */
+	private Random random(int generation){
+		return new Random(seed + generation * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * Pick a parent by tournament selection: the fittest of
+	 * SELECTION members picked at random
+	 * @param order indices of the members, fittest first
+	 * @return index of the parent
+	 */
+	private static int select(Integer[] order, Random random){
+		int rank = order.length;
+		for (int k = 0; k < SELECTION; k++)
+			rank = Math.min(rank, random.nextInt(order.length));
+		return order[rank];
+	}
+
+	/** Return weights taking each tuned weight from either parent */
+	private static Weights crossover(Weights mother, Weights father, Random random){
+		int[] values = mother.toArray();
+		int[] other = father.toArray();
+		for (int k : TUNED) {
+			if (random.nextBoolean())
+				values[k] = other[k];
+		}
+		return new Weights(values);
+	}
+
+	/** Return the weights with each tuned weight changed with probability
+	 *  MUTATION by a random amount of about a quarter of itself */
+	private static Weights mutate(Weights weights, Random random){
+		int[] values = weights.toArray();
+		for (int k : TUNED) {
+			if (random.nextDouble() < MUTATION) {
+				double spread = Math.max(1, values[k] / 4.0);
+				int change = (int) Math.round(random.nextGaussian() * spread);
+				values[k] += (change == 0) ? (random.nextBoolean() ? 1 : -1) : change;
+			}
+		}
+		return new Weights(values);
+	}
+
+	/**
+	 * Write the state of the run to a checkpoint file, through a
+	 * temporary file so that the last checkpoint is never half written
+	 */
+	public void save(File file) throws IOException {
+		File temporary = new File(file.getPath() + ".tmp");
+		try (PrintWriter out = new PrintWriter(new FileWriter(temporary))) {
+			out.println("# GeneticTuner checkpoint");
+			out.println("n "+n);
+			out.println("seed "+seed);
+			out.println("games "+games);
+			out.println("generation "+generation);
+			if (best != null)
+				out.println("best "+best+" "+bestScore+" "+bestMargin);
+			for (Weights weights : population)
+				out.println("member "+weights);
+		}
+		if (!temporary.renameTo(file)) {
+			file.delete();
+			if (!temporary.renameTo(file))
+				throw new IOException("can't write "+file);
+		}
+	}
+
+	/**
+	 * Read the state of a run from a checkpoint file
+	 * @param threads number of games to play at once
+	 * @throws IOException if the file can't be read or is not a checkpoint
+	 */
+	public static GeneticTuner load(File file, int threads) throws IOException {
+		Map<String, String> values = new HashMap<String, String>();
+		List<Weights> population = new ArrayList<Weights>();
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				String[] words = line.split(" ", 2);
+				if (words.length < 2)
+					throw new IOException(file+": bad line: "+line);
+				if (words[0].equals("member"))
+					population.add(Weights.parse(words[1]));
+				else
+					values.put(words[0], words[1]);
+			}
+		}
+		if (population.isEmpty() || !values.containsKey("n")
+				|| !values.containsKey("seed") || !values.containsKey("generation"))
+			throw new IOException(file+" is not a GeneticTuner checkpoint");
+
+		GeneticTuner tuner = new GeneticTuner(Integer.parseInt(values.get("n")), 0,
+				Integer.parseInt(values.getOrDefault("games", Integer.toString(GAMES))),
+				threads, Long.parseLong(values.get("seed")));
+		tuner.population = population;
+		tuner.generation = Integer.parseInt(values.get("generation"));
+		if (values.containsKey("best")) {
+			String[] best = values.get("best").split(" ");
+			tuner.best = Weights.parse(best[0]);
+			tuner.bestScore = Double.parseDouble(best[1]);
+			tuner.bestMargin = Double.parseDouble(best[2]);
+		}
+		return tuner;
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: java GeneticTuner <checkpoint file> [n]"
+					+" [generations] [population] [games per member] [threads] [seed]");
+			System.exit(1);
+		}
+		File checkpoint = new File(args[0]);
+		int n = (args.length > 1) ? Integer.parseInt(args[1]) : N;
+		int generations = (args.length > 2) ? Integer.parseInt(args[2]) : GENERATIONS;
+		int size = (args.length > 3) ? Integer.parseInt(args[3]) : POPULATION;
+		int games = (args.length > 4) ? Integer.parseInt(args[4]) : GAMES;
+		int threads = (args.length > 5) ? Integer.parseInt(args[5])
+				: Runtime.getRuntime().availableProcessors();
+		long seed = (args.length > 6) ? Long.parseLong(args[6]) : SEED;
+
+		if (System.getProperty("hexifence.move.ms") == null)
+			System.setProperty("hexifence.move.ms", Integer.toString(MOVE_MILLIS));
+		// a position cache holds scores of the default weights only
+		System.clearProperty("hexifence.cache");
+
+		GeneticTuner tuner;
+		if (checkpoint.exists()) {
+			tuner = load(checkpoint, threads);
+			System.out.println("carrying on from generation "+tuner.generation
+					+" of "+checkpoint);
+		} else {
+			tuner = new GeneticTuner(n, size, games, threads, seed);
+		}
+		while (tuner.generation < generations) {
+			tuner.step();
+			tuner.save(checkpoint);
+		}
+		System.out.println("best "+tuner.best+" scoring "
+				+String.format("%.1f%%", 100*tuner.bestScore)+" against the defaults");
+	}
+}
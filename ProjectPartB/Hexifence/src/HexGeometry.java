@@ -0,0 +1,309 @@
+/** HexGeometry class holding the index tables of a board of a given size
+ *
+ * Every valid edge tile gets a dense index (in row-major order) and every
+ * hexagonal cell gets an index as well. The tables relating the two are
+ * worked out once per n and shared by all Board objects of that size,
+ * so none of them may be modified after construction.
+ *
+ * The board is a hexagon, so it looks the same after any of its 12
+ * symmetries (6 rotations, each with or without a reflection). Taking
+ * the tile (i, j) relative to the centre tile as x = i-(2n-1), y = j-(2n-1),
+ * a rotation by 60 degrees takes (x, y) to (x-y, x) and the reflection
+ * takes (x, y) to (y, x). Symmetry g is g%6 rotations after g/6
+ * reflections, and the tables below give the edge and hexagon each edge
+ * and hexagon goes to under every symmetry.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class HexGeometry {
+
+	// Number of symmetries of the board, symmetry 0 leaves it as it is
+	public static final int SYMMETRIES = 12;
+
+	// Seed of the Zobrist keys, fixed so hashes are the same in every run
+	private static final long ZOBRIST_SEED = 0x5EED_4E4F_5A0B_2157L;
+
+	// One geometry for each value of n, built on first use
+	private static final ConcurrentHashMap<Integer, HexGeometry> CACHE =
+			new ConcurrentHashMap<Integer, HexGeometry>();
+
+	public final int n; // The N value (either 2 or 3)
+	public final int size; // The size of the board (4*n-1)
+	public final int numEdges; // Number of edges on the board
+	public final int numHexes; // Number of hexagonal cells on the board
+	public final int words; // Number of longs needed to hold one bit per edge
+
+	final long[] validTiles; // Bit set of valid tiles (+, R or B) at i*size+j
+	final int[] edgeIndex; // Edge index of the tile at i*size+j or -1
+	final int[] hexIndex; // Hexagon index of the centre tile at i*size+j or -1
+	final int[] edgeRow; // Row of each edge
+	final int[] edgeCol; // Column of each edge
+	final int[] hexRow; // Row of the centre tile of each hexagon
+	final int[] hexCol; // Column of the centre tile of each hexagon
+	final int[][] hexEdgeList; // Indices of the 6 edges of each hexagon
+	final long[][] hexEdges; // Bit set of the 6 edges of each hexagon
+	final int[][] edgeHexes; // Indices of the 1 or 2 hexagons of each edge
+
+	// Zobrist keys, XORed into the hash of a board as it changes
+	final long[] edgeKeys; // Key of each edge once it has been taken
+	final long[] blueCellKeys; // Key of each hexagon captured by blue
+	final long[] redCellKeys; // Key of each hexagon captured by red
+
+	// Symmetries of the board
+	final int[][] symmetricEdge; // Edge each edge goes to, by symmetry
+	final int[][] symmetricHex; // Hexagon each hexagon goes to, by symmetry
+	final int[] inverseSymmetry; // Symmetry undoing each symmetry
+	// Zobrist keys of the edge or hexagon each one goes to, by symmetry
+	final long[][] symmetricEdgeKeys;
+	final long[][] symmetricBlueCellKeys;
+	final long[][] symmetricRedCellKeys;
+
+
+	/** Return the shared geometry for boards of the given n
+	 */
+	public static HexGeometry of(int n){
+		HexGeometry geometry = CACHE.get(n);
+		if(geometry == null)
+			geometry = CACHE.computeIfAbsent(n, HexGeometry::new);
+		return geometry;
+	}
+
+	/** constructor, only called through of()
+	 */
+	private HexGeometry(int n){
+		if(n < 1)
+			throw new IllegalArgumentException("n must be positive: "+n);
+		this.n = n;
+		this.size = 4*n-1;
+
+		// mark the valid tiles and give every valid edge tile an index
+		validTiles = new long[(size*size+63)/64];
+		edgeIndex = new int[size*size];
+		int[] rows = new int[size*size];
+		int[] cols = new int[size*size];
+		int edges = 0;
+		for(int i = 0; i<size ; i++){
+			for(int j = 0; j<size ; j++){
+				if(isValid(n, i, j)){
+					validTiles[(i*size+j) >>> 6] |= 1L << (i*size+j);
+					edgeIndex[i*size+j] = edges;
+					rows[edges] = i;
+					cols[edges] = j;
+					edges++;
+				}else{
+					edgeIndex[i*size+j] = -1;
+				}
+			}
+		}
+		numEdges = edges;
+		words = (numEdges+63)/64;
+		edgeRow = Arrays.copyOf(rows, numEdges);
+		edgeCol = Arrays.copyOf(cols, numEdges);
+
+		// give every hexagon whose 6 edges are valid an index
+		// (passing the top left tile of each hexagonal cell)
+		hexIndex = new int[size*size];
+		Arrays.fill(hexIndex, -1);
+		int[][] lists = new int[size*size][];
+		int hexes = 0;
+		for(int i = 0; i<size; i+=2){
+			for(int j = 0; j<size; j+=2){
+				int[] iValues = {i, i+1, i, i+2, i+1, i+2};
+				int[] jValues = {j, j, j+1, j+1, j+2, j+2};
+				int[] list = new int[iValues.length];
+				boolean isOutOfBound = false;
+				for(int k = 0; k<jValues.length; k++){
+					if(!isValid(n, iValues[k], jValues[k])){
+						isOutOfBound = true;
+						break;
+					}
+					list[k] = edgeIndex[iValues[k]*size+jValues[k]];
+				}
+				if(!isOutOfBound){
+					rows[hexes] = i+1;
+					cols[hexes] = j+1;
+					hexIndex[(i+1)*size+(j+1)] = hexes;
+					lists[hexes] = list;
+					hexes++;
+				}
+			}
+		}
+		// captured cells are held in a single long
+		if(hexes > 64)
+			throw new IllegalArgumentException("n is too large: "+n);
+		numHexes = hexes;
+		hexRow = Arrays.copyOf(rows, numHexes);
+		hexCol = Arrays.copyOf(cols, numHexes);
+		hexEdgeList = Arrays.copyOf(lists, numHexes);
+		hexEdges = new long[numHexes][words];
+		for(int h = 0; h<numHexes; h++)
+			for(int e : hexEdgeList[h])
+				hexEdges[h][e >>> 6] |= 1L << e;
+
+		// the hexagons on either side of each edge
+		int[] count = new int[numEdges];
+		for(int h = 0; h<numHexes; h++)
+			for(int e : hexEdgeList[h])
+				count[e]++;
+		edgeHexes = new int[numEdges][];
+		for(int e = 0; e<numEdges; e++)
+			edgeHexes[e] = new int[count[e]];
+		Arrays.fill(count, 0);
+		for(int h = 0; h<numHexes; h++)
+			for(int e : hexEdgeList[h])
+				edgeHexes[e][count[e]++] = h;
+
+		// random keys for hashing
+		SplittableRandom random = new SplittableRandom(ZOBRIST_SEED + n);
+		edgeKeys = new long[numEdges];
+		for(int e = 0; e<numEdges; e++)
+			edgeKeys[e] = random.nextLong();
+		blueCellKeys = new long[numHexes];
+		redCellKeys = new long[numHexes];
+		for(int h = 0; h<numHexes; h++){
+			blueCellKeys[h] = random.nextLong();
+			redCellKeys[h] = random.nextLong();
+		}
+
+		// where every edge and hexagon goes under each symmetry
+		symmetricEdge = new int[SYMMETRIES][numEdges];
+		symmetricHex = new int[SYMMETRIES][numHexes];
+		symmetricEdgeKeys = new long[SYMMETRIES][numEdges];
+		symmetricBlueCellKeys = new long[SYMMETRIES][numHexes];
+		symmetricRedCellKeys = new long[SYMMETRIES][numHexes];
+		for(int g = 0; g<SYMMETRIES; g++){
+			for(int e = 0; e<numEdges; e++){
+				int tile = transform(g, edgeRow[e], edgeCol[e]);
+				symmetricEdge[g][e] = edgeIndex[tile];
+				symmetricEdgeKeys[g][e] = edgeKeys[edgeIndex[tile]];
+			}
+			for(int h = 0; h<numHexes; h++){
+				int tile = transform(g, hexRow[h], hexCol[h]);
+				symmetricHex[g][h] = hexIndex[tile];
+				symmetricBlueCellKeys[g][h] = blueCellKeys[hexIndex[tile]];
+				symmetricRedCellKeys[g][h] = redCellKeys[hexIndex[tile]];
+			}
+		}
+		inverseSymmetry = new int[SYMMETRIES];
+		for(int g = 0; g<SYMMETRIES; g++){
+			for(int k = 0; k<SYMMETRIES; k++){
+				boolean undoes = true;
+				for(int e = 0; e<numEdges && undoes; e++)
+					undoes = symmetricEdge[k][symmetricEdge[g][e]] == e;
+				if(undoes)
+					inverseSymmetry[g] = k;
+			}
+		}
+	}
+
+	/**
+	 * Return the tile (as i*size+j) which the tile at i, j goes to
+	 * under the symmetry g
+	 */
+	private int transform(int g, int i, int j){
+		int centre = 2*n-1;
+		int x = i-centre;
+		int y = j-centre;
+		if(g >= SYMMETRIES/2){
+			// reflect
+			int t = x;
+			x = y;
+			y = t;
+		}
+		for(int k = 0; k<g%(SYMMETRIES/2); k++){
+			// rotate by 60 degrees
+			int t = x;
+			x = x-y;
+			y = t;
+		}
+		return (x+centre)*size + (y+centre);
+	}
+
+	/**
+	 * Return true if the tile coordinate is valid,
+	 * i.e. the tile can have +, R or B on it
+	 */
+	public boolean isValid(int i, int j){
+		if(i < 0 || j < 0 || i >= size || j >= size)
+			return false;
+		return (validTiles[(i*size+j) >>> 6] & (1L << (i*size+j))) != 0;
+	}
+
+	/**
+	 * Return the edge index of the tile at i, j
+	 * or -1 if the tile is not a valid edge
+	 */
+	public int edgeIndex(int i, int j){
+		if(i < 0 || j < 0 || i >= size || j >= size)
+			return -1;
+		return edgeIndex[i*size+j];
+	}
+
+	/**
+	 * Return the hexagon index of the centre tile at i, j
+	 * or -1 if the tile is not the centre of a hexagon
+	 */
+	public int hexIndex(int i, int j){
+		if(i < 0 || j < 0 || i >= size || j >= size)
+			return -1;
+		return hexIndex[i*size+j];
+	}
+
+	/** Return the row of the edge e */
+	public int edgeRow(int e){
+		return edgeRow[e];
+	}
+
+	/** Return the column of the edge e */
+	public int edgeCol(int e){
+		return edgeCol[e];
+	}
+
+	/** Return the edge which the edge e goes to under the symmetry g */
+	public int symmetricEdge(int g, int e){
+		return symmetricEdge[g][e];
+	}
+
+	/** Return the symmetry which undoes the symmetry g */
+	public int inverseSymmetry(int g){
+		return inverseSymmetry[g];
+	}
+
+	/**
+	 * Given a tile point using i, j, returns true
+	 * if the tile coordinate is valid
+	 *
+	 * Hexagon centers and boundaries therefore return false
+	 */
+	private static boolean isValid(int n, int i, int j){
+		int size = 4*n-1;
+
+		// Check for array boundary
+		if (i >= size || j >= size)
+			return false;
+
+		// Check for hexagon boundary
+		// Note: Center of hexagons only occur on odd i, j
+		if (i%2==1 && j%2==1)
+			return false;
+
+		// Check for game boundary
+		// If j < 2n-1, then for tile to be valid i <= (2n-1)+j
+		// If j > 2n-1, then for tile to be valid i >= j-(2n-1)
+		// If j = 2n-1, then tile is valid
+		int boundary = 2*n-1;
+		if(!((j < boundary && i <= boundary+j)
+				||(j > boundary && i >= j-boundary)
+				||(j == boundary)))
+			return false;
+
+		return true;
+	}
+}
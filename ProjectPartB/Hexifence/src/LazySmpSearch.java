@@ -0,0 +1,103 @@
+/** LazySmpSearch class for searching with several threads in the
+ * Lazy SMP style: helper threads search the same position as the
+ * main search, each on its own copy of the board, and only talk to it
+ * through the transposition table they all share. Every result a helper
+ * stores can cut off or order the main search once it gets there.
+ *
+ * Half of the helpers search one ply deeper than the others, so the
+ * threads do not all walk the same tree in the same order.
+ * The move played is always the one found by the main search.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class LazySmpSearch {
+
+	// the search on the game board, run on the calling thread
+	private final Searcher main;
+	// searchers of the helper threads, sharing the table of main
+	private final Searcher[] helpers;
+	// threads running the helpers of every instance, created as they are
+	// needed and retired after a minute without work, so that players
+	// made for every game of a tournament share them
+	private static final ExecutorService pool = Executors.newCachedThreadPool(
+			new ThreadFactory() {
+				public Thread newThread(Runnable runnable){
+					// don't keep the referee running after the game
+					Thread thread = new Thread(runnable, "LazySmpSearch");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+	// helper searches started by start() and not yet stopped
+	private final List<Future<?>> running = new ArrayList<Future<?>>();
+
+
+	/** constructor
+	 * @param main the search on the game board
+	 * @param helpers one searcher per helper thread, each with its own
+	 * 		  board and the same transposition table as main
+	 */
+	public LazySmpSearch(Searcher main, Searcher[] helpers){
+		this.main = main;
+		this.helpers = helpers;
+	}
+
+	/**
+	 * Start the helpers searching the position on the game board,
+	 * one ply deeper at a time, until stop() is called or the time is up
+	 * @param deadline System.nanoTime() at which to stop searching
+	 */
+	public void start(long deadline){
+		for(int k = 0; k<helpers.length; k++){
+			final Searcher helper = helpers[k];
+			final int firstDepth = 1 + k%2;
+			helper.board.copyFrom(main.board);
+			helper.ageHistory();
+			// started here, so a stop() straight after is not lost
+			helper.startSearch(deadline, true);
+			running.add(pool.submit(new Runnable() {
+				public void run(){
+					deepen(helper, firstDepth);
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Stop the helpers and wait for them to unwind their boards
+	 */
+	public void stop(){
+		for(Searcher helper : helpers)
+			helper.stop();
+		for(Future<?> helper : running){
+			try{
+				helper.get();
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}catch(ExecutionException e){
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		running.clear();
+	}
+
+	/**
+	 * Search the helper's board one ply deeper at a time,
+	 * keeping nothing but what goes into the table
+	 */
+	private static void deepen(Searcher helper, int firstDepth){
+		int maxDepth = helper.board.getPossibleMoves();
+		for(int depth = firstDepth; depth <= maxDepth; depth++){
+			helper.minimax(depth, Searcher.MYTURN,
+					Searcher.MININT, Searcher.MAXINT);
+			if(helper.isTimeUp())
+				return;
+		}
+	}
+}
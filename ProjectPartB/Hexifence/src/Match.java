@@ -0,0 +1,210 @@
+/** Match class for deciding whether one player is stronger than another
+ * with as few games as possible.
+ *
+ * The players play a Tournament of pairs of games, both games of a pair
+ * from the same random opening with the colours swapped. After each pair
+ * a sequential probability ratio test (SPRT) weighs the hypotheses
+ *   H0: the first player is elo0 Elo stronger than the second
+ *   H1: the first player is elo1 Elo stronger than the second
+ * by the log likelihood ratio (LLR) of the results so far, and the match
+ * stops as soon as the LLR goes below log(beta/(1-alpha)), accepting H0,
+ * or above log((1-beta)/alpha), accepting H1. H0 is then wrongly accepted
+ * with probability at most beta and H1 with probability at most alpha.
+ *
+ * The two games of a pair are not independent, as the opening may favour
+ * one side, so the results are counted by pair: the first player scores
+ * 0, 1/2, 1, 3/2 or 2 points in a pair. With the mean score s per game
+ * and its variance v per pair over N pairs, the LLR is close to
+ *   N (s1-s0) (2s-s0-s1) / 2v
+ * where s0 and s1 are the scores expected under H0 and H1. The Elo
+ * estimate and its 95% error bars come from s and v in the same way.
+ *
+ * usage: java Match <n> <first player class> <second player class>
+ * 		  [elo0] [elo1] [alpha] [beta] [max games] [threads]
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.util.*;
+import java.util.function.Supplier;
+import aiproj.hexifence.*;
+
+public class Match extends Tournament {
+
+	// Defaults of the command line arguments
+	public static final double ELO0 = 0;
+	public static final double ELO1 = 20;
+	public static final double ALPHA = 0.05;
+	public static final double BETA = 0.05;
+	public static final int MAX_GAMES = 10000;
+	// Number of random moves each pair of games starts with
+	public static final int OPENING_MOVES = 4;
+
+	// Outcomes of the test
+	public static final int UNDECIDED = 0;
+	public static final int ACCEPT_H0 = 1;
+	public static final int ACCEPT_H1 = 2;
+
+	// Added to every pair count, so that the variance is never 0 and
+	// the first few pairs alone can't decide the test
+	private static final double PRIOR = 0.25;
+
+	public final double elo0; // Elo difference under H0
+	public final double elo1; // Elo difference under H1
+	public final double lower; // the LLR at or below which H0 is accepted
+	public final double upper; // the LLR at or above which H1 is accepted
+
+	// pairs in which the first player scored 0, 1/2, 1, 3/2 and 2 points
+	public int[] pairs = new int[5];
+	// log likelihood ratio of the results so far
+	public double llr = 0;
+	// UNDECIDED, ACCEPT_H0 or ACCEPT_H1
+	public int outcome = UNDECIDED;
+
+	// points of the games whose other game of the pair is not over,
+	// by pair
+	private final Map<Integer, Integer> unpaired = new HashMap<Integer, Integer>();
+
+
+	/** constructor
+	 * @param n the N value of the boards to play on
+	 * @param first makes a new first player for each game
+	 * @param second makes a new second player for each game
+	 * @param firstName name of the first player
+	 * @param secondName name of the second player
+	 * @param elo0 Elo difference under H0
+	 * @param elo1 Elo difference under H1
+	 * @param alpha largest probability of accepting H1 when H0 holds
+	 * @param beta largest probability of accepting H0 when H1 holds
+	 */
+	public Match(int n, Supplier<Player> first, Supplier<Player> second,
+			String firstName, String secondName,
+			double elo0, double elo1, double alpha, double beta){
+		super(n, first, second, firstName, secondName);
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		this.lower = Math.log(beta / (1 - alpha));
+		this.upper = Math.log((1 - beta) / alpha);
+		openingMoves = OPENING_MOVES;
+		openingSeed = System.nanoTime();
+	}
+
+	/**
+	 * Add the result of a game to the totals, and once both games of its
+	 * pair are over, test the results so far, stopping the match if
+	 * either hypothesis can be accepted
+	 * @param result the result of the game
+	 */
+	@Override
+	protected synchronized void add(GameResult result){
+		super.add(result);
+		// 2 points for a win and 1 for a draw, so a pair scores 0 to 4
+		int points = (result.margin > 0) ? 2 : (result.margin == 0) ? 1 : 0;
+		Integer other = unpaired.remove(result.game/2);
+		if (other == null) {
+			unpaired.put(result.game/2, points);
+			return;
+		}
+		pairs[points + other]++;
+		llr = logLikelihoodRatio();
+		if (outcome == UNDECIDED && llr <= lower)
+			outcome = ACCEPT_H0;
+		else if (outcome == UNDECIDED && llr >= upper)
+			outcome = ACCEPT_H1;
+		if (outcome != UNDECIDED)
+			stop();
+	}
+
+	/** Return the LLR of H1 against H0 given the pairs so far */
+	public synchronized double logLikelihoodRatio(){
+		double[] stats = pairStats();
+		double s0 = score(elo0);
+		double s1 = score(elo1);
+		return stats[2] * (s1 - s0) * (2*stats[0] - s0 - s1) / (2*stats[1]);
+	}
+
+	/** Return the Elo difference of the first player over the second
+	 *  and the 95% error bars of it, from the pairs so far
+	 * @return {Elo, lowest Elo, highest Elo}
+	 */
+	public synchronized double[] eloEstimate(){
+		double[] stats = pairStats();
+		double error = 1.96 * Math.sqrt(stats[1] / stats[2]);
+		return new double[] {elo(stats[0]), elo(stats[0] - error),
+				elo(stats[0] + error)};
+	}
+
+	/** Return the mean score per game, the variance of the score per
+	 *  pair and the number of pairs, with PRIOR added to every count
+	 * @return {mean, variance, pairs}
+	 */
+	private double[] pairStats(){
+		double total = 0;
+		double sum = 0;
+		double squares = 0;
+		for (int k = 0; k < pairs.length; k++) {
+			double count = pairs[k] + PRIOR;
+			double score = k / 4.0; // score per game of the pair
+			total += count;
+			sum += count*score;
+			squares += count*score*score;
+		}
+		double mean = sum / total;
+		return new double[] {mean, squares/total - mean*mean, total};
+	}
+
+	/** Return the score expected by a player the given Elo stronger */
+	public static double score(double elo){
+		return 1 / (1 + Math.pow(10, -elo/400));
+	}
+
+	/** Return the Elo difference giving the expected score */
+	public static double elo(double score){
+		score = Math.max(1e-6, Math.min(1 - 1e-6, score));
+		return -400 * Math.log10(1/score - 1);
+	}
+
+	/** Print the totals and the state of the test
+	 * @param output where to print them
+	 */
+	@Override
+	public synchronized void report(java.io.PrintStream output){
+		super.report(output);
+		double[] elo = eloEstimate();
+		output.printf("  pairs %s, LLR %.2f (%.2f, %.2f), Elo %+.1f [%+.1f, %+.1f]%s%n",
+				Arrays.toString(pairs), llr, lower, upper, elo[0], elo[1], elo[2],
+				(outcome == ACCEPT_H0) ? ", H0 accepted"
+				: (outcome == ACCEPT_H1) ? ", H1 accepted" : "");
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("usage: java Match <n> <first player class>"
+					+" <second player class> [elo0] [elo1] [alpha] [beta]"
+					+" [max games] [threads]");
+			System.exit(1);
+		}
+		int n = Integer.parseInt(args[0]);
+		double elo0 = (args.length > 3) ? Double.parseDouble(args[3]) : ELO0;
+		double elo1 = (args.length > 4) ? Double.parseDouble(args[4]) : ELO1;
+		double alpha = (args.length > 5) ? Double.parseDouble(args[5]) : ALPHA;
+		double beta = (args.length > 6) ? Double.parseDouble(args[6]) : BETA;
+		int maxGames = (args.length > 7) ? Integer.parseInt(args[7]) : MAX_GAMES;
+		int threads = (args.length > 8) ? Integer.parseInt(args[8])
+				: Runtime.getRuntime().availableProcessors();
+
+		Match match = new Match(n, forClass(args[1]), forClass(args[2]),
+				args[1], args[2], elo0, elo1, alpha, beta);
+		long start = System.nanoTime();
+		match.play(maxGames, threads);
+		System.out.println((match.outcome == ACCEPT_H1) ? "H1 accepted: "+args[1]
+				+" is at least "+elo1+" Elo stronger"
+				: (match.outcome == ACCEPT_H0) ? "H0 accepted: "+args[1]
+				+" is not "+elo1+" Elo stronger"
+				: "undecided after "+match.games+" games");
+		System.out.println("played in "+(System.nanoTime()-start)/1000000+"ms");
+	}
+}
@@ -0,0 +1,324 @@
+/** OpeningBook class holding the best move of the first positions of a game.
+ *
+ * The first moves of a game are played from the same few positions game
+ * after game, so they are searched once, deeply and offline, instead of
+ * at every game. The book is built by main(): every position reachable
+ * from the empty board within a number of moves is searched by iterative
+ * deepening for a fixed time, and its best move written to a file.
+ *
+ * The book deliberately answers with a different policy from the one it
+ * stands in for. Without it, the player plays a random move giving nothing
+ * away in these positions, without searching (see chooseMove() in
+ * SongtNmirpuri; the endgame solver never applies this early). The book
+ * plays the move a long search prefers there instead, which is why its
+ * entries come from iterativeDeepening() and not from chooseMove(), which
+ * would only store a random safe move.
+ *
+ * Positions are kept in their canonical form (see HexGeometry), so a
+ * rotation or reflection of a position is only searched and stored once.
+ * Only positions with no captured cells are in the book: in those the
+ * number of taken edges says whose turn it is, blue moving on even counts.
+ *
+ * The file is a header (MAGIC, n, number of entries) followed by the
+ * entries sorted by key, each ENTRY_BYTES long:
+ * - the canonical hash of the position (8 bytes)
+ * - the best edge, as it is in the canonical form of the position (2 bytes)
+ * - the score the search gave the best edge (2 bytes), which the player
+ *   reports as the score of a move of the book (see SearchStats)
+ * The player maps the file read-only and finds a position by binary search.
+ *
+ * usage: java OpeningBook <file> [n] [moves] [ms per position] [threads]
+ * The player then uses the book with -Dhexifence.opening.book=<file>
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import aiproj.hexifence.*;
+
+public class OpeningBook implements Piece {
+
+	// First int of a book file, "HXBK"
+	public static final int MAGIC = 0x4858424B;
+	// Bytes of the header and of each entry
+	public static final int HEADER_BYTES = 12;
+	public static final int ENTRY_BYTES = 12;
+
+	// Defaults of the command line arguments
+	public static final int N = 3;
+	public static final int MOVES = 2;
+	public static final int MOVE_MILLIS = 2000;
+
+	public final int n; // the N value of the boards in the book
+	public final int size; // number of positions in the book
+	private final MappedByteBuffer book; // the entries, mapped read-only
+	private final HexGeometry geometry; // symmetries of the board
+
+
+	/** constructor
+	 * @param n the N value of the boards in the book
+	 * @param size number of positions in the book
+	 * @param book the mapped entries
+	 */
+	private OpeningBook(int n, int size, MappedByteBuffer book){
+		this.n = n;
+		this.size = size;
+		this.book = book;
+		this.geometry = HexGeometry.of(n);
+	}
+
+	/**
+	 * Map a book written by main() read-only
+	 * @param path the file holding the book
+	 * @throws IOException if the file can't be read or is not a book
+	 */
+	public static OpeningBook open(String path) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+			if (file.length() < HEADER_BYTES || file.readInt() != MAGIC)
+				throw new IOException(path+" is not an opening book");
+			int n = file.readInt();
+			int size = file.readInt();
+			if (file.length() != HEADER_BYTES + (long) size*ENTRY_BYTES)
+				throw new IOException(path+" should hold "+size
+						+" positions: "+file.length()+" bytes");
+			return new OpeningBook(n, size, file.getChannel().map(
+					FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+					(long) size*ENTRY_BYTES));
+		}
+	}
+
+	/**
+	 * Look the position on the board up, finding its canonical form and
+	 * its entry only once for both the move and the score
+	 * @param board the board, which must be of the same n as the book
+	 * @return {edge index of the best move of the player to move, score
+	 * 		   the search gave it}, or null if the position is not in the book
+	 */
+	public int[] lookup(Board board){
+		if (board.blueHex + board.redHex > 0)
+			return null;
+		int symmetry = board.getCanonicalSymmetry();
+		int k = find(board.getHash(symmetry));
+		if (k < 0)
+			return null;
+		int e = geometry.symmetricEdge(geometry.inverseSymmetry(symmetry),
+				book.getShort(k*ENTRY_BYTES + 8));
+		// a different position with the same hash could give a taken edge
+		if ((board.getOpenEdges(e >>> 6) & (1L << e)) == 0)
+			return null;
+		return new int[] {e, book.getShort(k*ENTRY_BYTES + 10)};
+	}
+
+	/**
+	 * Return the best move of the player to move on the board
+	 * @param board the board, which must be of the same n as the book
+	 * @return edge index of the move, or -1 if the position is not in the book
+	 */
+	public int bestEdge(Board board){
+		int[] entry = lookup(board);
+		return (entry == null) ? -1 : entry[0];
+	}
+
+	/**
+	 * Return the score the search gave the best move of the player to move
+	 * @param board the board, which must be of the same n as the book
+	 * @return the score, or 0 if the position is not in the book
+	 */
+	public int score(Board board){
+		int[] entry = lookup(board);
+		return (entry == null) ? 0 : entry[1];
+	}
+
+	/** Return the index of the entry with the given key,
+	 *  or -1 if there is none */
+	private int find(long key){
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long midKey = book.getLong(mid*ENTRY_BYTES);
+			if (midKey < key)
+				low = mid + 1;
+			else if (midKey > key)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Build the book and write it to a file
+	 * @param args the file to write, n, the number of moves from the empty
+	 * 		  board, the time to search each position for and the number
+	 * 		  of threads to use
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: java OpeningBook <file> [n] [moves]"
+					+" [ms per position] [threads]");
+			System.exit(1);
+		}
+		int n = (args.length > 1) ? Integer.parseInt(args[1]) : N;
+		int moves = (args.length > 2) ? Integer.parseInt(args[2]) : MOVES;
+		long millis = (args.length > 3) ? Long.parseLong(args[3]) : MOVE_MILLIS;
+		int threads = (args.length > 4) ? Integer.parseInt(args[4])
+				: Runtime.getRuntime().availableProcessors();
+
+		long start = System.nanoTime();
+		List<int[]> positions = positions(n, moves);
+		System.out.println(positions.size()+" positions within "+moves
+				+" moves, about "+positions.size()*millis/threads/1000+"s to search");
+		long[][] entries = search(n, positions, millis, threads);
+		write(args[0], n, entries);
+		System.out.println("built in "+(System.nanoTime()-start)/1000000+"ms");
+	}
+
+	/**
+	 * Return the edges taken in one position of each canonical form
+	 * reachable from the empty board within the given number of moves
+	 * without capturing anything, in the order they are reached
+	 */
+	public static List<int[]> positions(int n, int moves){
+		Board board = new Board(n);
+		List<int[]> positions = new ArrayList<int[]>();
+		Set<Long> seen = new HashSet<Long>();
+		positions.add(new int[0]);
+		seen.add(board.getHash(board.getCanonicalSymmetry()));
+
+		// the positions one move on from the last ones, a move at a time
+		int[] edges = new int[HexGeometry.of(n).numEdges];
+		int first = 0;
+		for (int k = 0; k < moves; k++) {
+			int last = positions.size();
+			for (int i = first; i < last; i++) {
+				int[] taken = positions.get(i);
+				play(board, taken);
+				int count = board.generatePosbMoves(edges, false);
+				for (int m = 0; m < count; m++) {
+					int e = edges[m];
+					if (board.getCaptureValue(e) > 0)
+						continue;
+					board.setBoard(e, mover(taken.length));
+					if (seen.add(board.getHash(board.getCanonicalSymmetry()))) {
+						int[] next = Arrays.copyOf(taken, taken.length + 1);
+						next[taken.length] = e;
+						positions.add(next);
+					}
+					board.undoMove(e);
+				}
+				for (int m = taken.length - 1; m >= 0; m--)
+					board.undoMove(taken[m]);
+			}
+			first = last;
+		}
+		return positions;
+	}
+
+	/**
+	 * Search every position with the player whose turn it is
+	 * @return {key, best edge in the canonical form, score} of each position
+	 */
+	private static long[][] search(final int n, final List<int[]> positions,
+			final long millis, int threads) throws Exception {
+		final long[][] entries = new long[positions.size()][];
+		final AtomicInteger next = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<Object>> workers = new ArrayList<Callable<Object>>();
+			for (int t = 0; t < threads; t++) {
+				workers.add(Executors.callable(new Runnable() {
+					public void run(){
+						SongtNmirpuri[] players = {null,
+								new SongtNmirpuri(), new SongtNmirpuri()};
+						players[BLUE].init(n, BLUE);
+						players[RED].init(n, RED);
+						for (int i = next.getAndIncrement(); i < positions.size();
+								i = next.getAndIncrement())
+							entries[i] = searchPosition(players, positions.get(i), millis);
+					}
+				}));
+			}
+			for (Future<Object> worker : pool.invokeAll(workers))
+				worker.get();
+		} finally {
+			pool.shutdown();
+		}
+		return entries;
+	}
+
+	/**
+	 * Search one position for the given time
+	 * @param players a player of each colour to search with
+	 * @param taken the edges taken in the position
+	 * @return {key, best edge in the canonical form, score} of the position
+	 */
+	private static long[] searchPosition(SongtNmirpuri[] players, int[] taken,
+			long millis){
+		SongtNmirpuri player = players[mover(taken.length)];
+		Board board = player.gameBoard;
+		play(board, taken);
+
+		player.searcher.table.newSearch();
+		player.searcher.ageHistory();
+		if (player.parallelSearch != null)
+			player.parallelSearch.newSearch();
+		int[] result = player.iterativeDeepening(board.getPossibleMoves(),
+				System.nanoTime() + millis*1000000L);
+
+		int symmetry = board.getCanonicalSymmetry();
+		Move move = new Move();
+		move.Row = result[1];
+		move.Col = result[2];
+		int e = HexGeometry.of(board.n).symmetricEdge(symmetry,
+				board.getEdgeIndex(move));
+		long[] entry = {board.getHash(symmetry), e,
+				Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, result[0]))};
+		for (int m = taken.length - 1; m >= 0; m--)
+			board.undoMove(taken[m]);
+		return entry;
+	}
+
+	/**
+	 * Write the entries to a book file, sorted by key
+	 */
+	private static void write(String path, int n, long[][] entries)
+			throws IOException {
+		Arrays.sort(entries, new Comparator<long[]>() {
+			public int compare(long[] a, long[] b){
+				return Long.compare(a[0], b[0]);
+			}
+		});
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(n);
+			out.writeInt(entries.length);
+			for (long[] entry : entries) {
+				out.writeLong(entry[0]);
+				out.writeShort((int) entry[1]);
+				out.writeShort((int) entry[2]);
+			}
+		}
+	}
+
+	/** Take the given edges in turn on the board, starting with blue */
+	private static void play(Board board, int[] taken){
+		for (int m = 0; m < taken.length; m++)
+			board.setBoard(taken[m], mover(m));
+	}
+
+	/** Return the player to move after the given number of moves
+	 *  which captured nothing */
+	private static int mover(int moves){
+		return (moves % 2 == 0) ? BLUE : RED;
+	}
+}
@@ -0,0 +1,153 @@
+/** ParallelSearch class for splitting the root of the minimax search
+ * over several threads, following the Young Brothers Wait idea:
+ * the first root move (the eldest brother) is searched on its own
+ * to get a bound, then the remaining moves are shared out between
+ * the threads, each searching on its own copy of the board and
+ * starting from the best score found so far.
+ *
+ * The move picked is the one the single-threaded search would pick,
+ * i.e. the first move in search order with the best score.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import aiproj.hexifence.*;
+
+public class ParallelSearch {
+
+	// one searcher per thread, searchers[0] searches on the game board
+	private final Searcher[] searchers;
+	// threads running searchers[1] and up of every instance, created as they are
+	// needed and retired after a minute without work, so that players
+	// made for every game of a tournament share them
+	private static final ExecutorService pool = Executors.newCachedThreadPool(
+			new ThreadFactory() {
+				public Thread newThread(Runnable runnable){
+					// don't keep the referee running after the game
+					Thread thread = new Thread(runnable, "ParallelSearch");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+
+	/** constructor
+	 * @param searchers one searcher per thread, the first of which
+	 * 		  searches on the game board and runs on the calling thread
+	 */
+	public ParallelSearch(Searcher[] searchers){
+		this.searchers = searchers;
+	}
+
+	/** Get ready to search the position on the game board:
+	 *  copy it to the other searchers and age their tables
+	 */
+	public void newSearch(){
+		for(int k = 1; k<searchers.length; k++){
+			searchers[k].board.copyFrom(searchers[0].board);
+			searchers[k].table.newSearch();
+			searchers[k].ageHistory();
+		}
+	}
+
+	/**
+	 * Search every root move to the given depth
+	 * @param depth depth to search to
+	 * @param deadline System.nanoTime() at which to stop searching
+	 * @param canStop false if the search must run to the end regardless
+	 * @return {score, row, col} of the best move
+	 * 		   or null if the time was up before the search finished
+	 */
+	public int[] search(int depth, long deadline, boolean canStop){
+		final Searcher main = searchers[0];
+		for(Searcher searcher : searchers)
+			searcher.startSearch(deadline, canStop);
+
+		final List<Move> posbMoves = main.rootMoves();
+		final int count = posbMoves.size();
+		final int[] scores = new int[count]; // score of each move
+		final int[] alphas = new int[count]; // alpha each move was searched with
+
+		// the eldest brother is searched alone with the full window
+		alphas[0] = Searcher.MININT;
+		scores[0] = main.searchMove(posbMoves.get(0), depth,
+				Searcher.MININT, Searcher.MAXINT);
+		if(main.isTimeUp())
+			return null;
+
+		// the younger brothers are shared out between the threads
+		final AtomicInteger alpha = new AtomicInteger(scores[0]);
+		final AtomicInteger next = new AtomicInteger(1);
+		List<Future<?>> helpers = new ArrayList<Future<?>>();
+		for(int k = 1; k<searchers.length; k++){
+			final Searcher helper = searchers[k];
+			helpers.add(pool.submit(new Runnable() {
+				public void run(){
+					searchBrothers(helper, posbMoves, depth, scores, alphas,
+							alpha, next);
+				}
+			}));
+		}
+		searchBrothers(main, posbMoves, depth, scores, alphas, alpha, next);
+		for(Future<?> helper : helpers){
+			try{
+				helper.get();
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				return null;
+			}catch(ExecutionException e){
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		for(Searcher searcher : searchers)
+			if(searcher.isTimeUp())
+				return null;
+
+		// the single-threaded search takes the first move with the best score
+		int best = alpha.get();
+		int bestMove = -1;
+		for(int i = 0; i<count && bestMove < 0; i++){
+			if(scores[i] > alphas[i]){
+				// searched with a low enough alpha to get its exact score
+				if(scores[i] == best)
+					bestMove = i;
+			}else if(alphas[i] >= best){
+				// only known to be no better than best, so check for a tie
+				int score = main.searchMove(posbMoves.get(i), depth,
+						best-1, Searcher.MAXINT);
+				if(main.isTimeUp())
+					return null;
+				if(score >= best)
+					bestMove = i;
+			}
+		}
+
+		// remember the best move for ordering the next iteration
+		Move move = posbMoves.get(bestMove);
+		main.storeRoot(best, depth, move);
+		return new int[] {best, move.Row, move.Col};
+	}
+
+	/**
+	 * Search root moves one at a time until none are left,
+	 * each with the best score found so far by any thread as alpha
+	 */
+	private static void searchBrothers(Searcher searcher, List<Move> posbMoves,
+			int depth, int[] scores, int[] alphas,
+			AtomicInteger alpha, AtomicInteger next){
+		int i;
+		while((i = next.getAndIncrement()) < posbMoves.size()){
+			alphas[i] = alpha.get();
+			scores[i] = searcher.searchMove(posbMoves.get(i), depth,
+					alphas[i], Searcher.MAXINT);
+			if(searcher.isTimeUp())
+				return;
+			alpha.accumulateAndGet(scores[i], Math::max);
+		}
+	}
+}
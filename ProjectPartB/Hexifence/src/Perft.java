@@ -0,0 +1,182 @@
+/** Perft class for counting every sequence of moves to a given depth
+ * with nothing but setBoard() and undoMove(), both to time them and to
+ * check that a change to Board leaves the game tree exactly as it was.
+ *
+ * Any open edge can be taken by the player to move, so the number of
+ * sequences of d moves only depends on the number of open edges. What
+ * the moves do does depend on Board: a move which captures a cell gives
+ * the same player another move, so who owns the cells captured along a
+ * sequence depends on every capture before it. Besides the sequences
+ * (leaves), perft counts
+ * - captures: moves capturing at least one cell,
+ * - doubles: moves capturing two cells at once,
+ * - blue and red: cells owned by each player, summed over the leaves,
+ * - checksum: the sum of the hashes of the leaves,
+ * all of which have to stay the same for the same board and depth.
+ *
+ * In divide mode the counts are also printed for each first move,
+ * to narrow a difference down to the moves leading to it.
+ *
+ * usage: java Perft <n> <depth> [divide] [position file]
+ * starting from the empty board, or the board in the file (see
+ * Board.read()), with blue to move
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.util.Arrays;
+import aiproj.hexifence.*;
+
+public class Perft implements Piece {
+
+	public final Board board; // the board to count on
+
+	// Counts of the last count()
+	public long leaves; // sequences of moves of the depth counted
+	public long captures; // moves capturing at least one cell
+	public long doubles; // moves capturing two cells
+	public long blue; // cells owned by blue, summed over the leaves
+	public long red; // cells owned by red, summed over the leaves
+	public long checksum; // sum of the hashes of the leaves
+	public long moves; // setBoard() and undoMove() pairs made
+
+	// possible moves, by ply
+	private final int[][] moveStack;
+
+
+	/** constructor
+	 * @param board the board to count on, left as it is found
+	 */
+	public Perft(Board board){
+		this.board = board;
+		int edges = HexGeometry.of(board.n).numEdges;
+		moveStack = new int[edges+1][edges];
+	}
+
+	/**
+	 * Count every sequence of moves of the given depth
+	 * @param depth number of moves in each sequence, the board itself
+	 * 		  being the one sequence of 0 moves or less
+	 * @param p either BLUE(1) or RED(2), the player to move
+	 */
+	public void count(int depth, int p){
+		leaves = 0;
+		captures = 0;
+		doubles = 0;
+		blue = 0;
+		red = 0;
+		checksum = 0;
+		moves = 0;
+		perft(depth, p, 0);
+	}
+
+	/** Count the sequences of depth moves from the board, p to move */
+	private void perft(int depth, int p, int ply){
+		if (depth <= 0) {
+			leaves++;
+			blue += board.blueHex;
+			red += board.redHex;
+			checksum += board.getHash();
+			return;
+		}
+		int[] edges = moveStack[ply];
+		int count = board.generatePosbMoves(edges, false);
+		for (int k = 0; k < count; k++) {
+			int e = edges[k];
+			int captured = board.getCaptureValue(e);
+			board.setBoard(e, p);
+			moves++;
+			if (captured > 0) {
+				captures++;
+				if (captured == 2)
+					doubles++;
+			}
+			// after a capture the same player moves again
+			perft(depth - 1, (captured > 0) ? p : (p == BLUE) ? RED : BLUE, ply + 1);
+			board.undoMove(e);
+		}
+	}
+
+	/** Return the counts of the last count() as one line */
+	public String counts(){
+		return String.format("%d leaves, %d captures, %d doubles,"
+				+" blue %d red %d, checksum %016x",
+				leaves, captures, doubles, blue, red, checksum);
+	}
+
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: java Perft <n> <depth> [divide] [position file]");
+			System.exit(1);
+		}
+		int n = Integer.parseInt(args[0]);
+		int depth = Integer.parseInt(args[1]);
+		if (depth < 1) {
+			System.err.println("the depth must be at least 1: "+depth);
+			System.exit(1);
+		}
+		boolean divide = false;
+		Board board = new Board(n);
+		for (int k = 2; k < args.length; k++) {
+			if (args[k].equals("divide")) {
+				divide = true;
+			} else {
+				try (BufferedReader in = new BufferedReader(new FileReader(args[k]))) {
+					board = Board.read(in);
+				}
+				if (board == null || board.n != n) {
+					System.err.println(args[k]+" does not hold a board of n="+n);
+					System.exit(1);
+				}
+			}
+		}
+		Perft perft = new Perft(board);
+
+		if (divide) {
+			// the counts of each first move and the moves below it,
+			// which add up to the counts of the whole depth
+			long leaves = 0;
+			long captures = 0;
+			long doubles = 0;
+			for (int e : perft.firstMoves()) {
+				int captured = board.getCaptureValue(e);
+				board.setBoard(e, BLUE);
+				perft.count(depth - 1, (captured > 0) ? BLUE : RED);
+				board.undoMove(e);
+				perft.moves++;
+				if (captured > 0) {
+					perft.captures++;
+					if (captured == 2)
+						perft.doubles++;
+				}
+				leaves += perft.leaves;
+				captures += perft.captures;
+				doubles += perft.doubles;
+				System.out.println(board.getEdgeRow(e)+","+board.getEdgeCol(e)
+						+": "+perft.counts());
+			}
+			System.out.println("total "+leaves+" leaves, "+captures+" captures, "
+					+doubles+" doubles");
+			return;
+		}
+
+		for (int d = 1; d <= depth; d++) {
+			long start = System.nanoTime();
+			perft.count(d, BLUE);
+			long nanos = System.nanoTime() - start;
+			System.out.printf("depth %d: %s, %.1fms, %.0f moves/s%n", d,
+					perft.counts(), nanos / 1e6,
+					perft.moves * 1e9 / Math.max(1, nanos));
+		}
+	}
+
+	/** Return the edge indices of the possible moves of the board */
+	private int[] firstMoves(){
+		int[] edges = new int[HexGeometry.of(board.n).numEdges];
+		return Arrays.copyOf(edges, board.generatePosbMoves(edges, false));
+	}
+}
@@ -0,0 +1,241 @@
+/** PositionCache class keeping search results in a file from game to game.
+ *
+ * A player is made afresh for every game, so its TranspositionTable
+ * starts empty every game. The cache is a fixed-size file laid out like
+ * the table, mapped into memory, which a table can be attached to:
+ * results the table does not have are looked up in the cache, and deep
+ * enough results stored in the table are written through to it. The
+ * operating system writes the mapped pages back to the file, so the
+ * cache keeps what was learned when the player goes away, and gets
+ * warmer with every game played with it.
+ *
+ * The file is a header (MAGIC, n, generation, VERSION, fingerprint)
+ * followed by buckets of two entries, each entry the key XORed with the
+ * data word and the data word, packed as in TranspositionTable with the
+ * age bits holding the low 8 bits of the generation, the number of
+ * processes which had opened the cache when the entry was stored. Every
+ * player of a process shares one mapping of the file, so a tournament
+ * only adds one generation. Each entry loses a ply of depth for every
+ * generation it is old when the first slot of its bucket is to be
+ * replaced, so results from long ago give way to newer ones. Entries
+ * stop getting older at MAX_AGE: every MAX_AGE/2 generations, older
+ * entries are made exactly MAX_AGE old, so that no entry gets more than
+ * 1.5*MAX_AGE old and the 8 bits of its age never wrap round to new.
+ *
+ * Searcher and EndgameSolver score positions differently, and the score
+ * of a Searcher depends on the colour it plays, so every table attached
+ * mixes its own key into the hashes it uses in the cache. Scores also
+ * depend on the engine and its Weights: a cache written by another
+ * VERSION or with weights of another fingerprint is emptied on opening.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+public class PositionCache {
+
+	// First int of a cache file, "HXPC"
+	public static final int MAGIC = 0x48585043;
+	// Version of the engine whose scores are in a cache file, to be
+	// changed whenever the search or the evaluation function scores
+	// positions differently
+	public static final int VERSION = 2;
+	// Bytes of the header and of each entry
+	public static final int HEADER_BYTES = 24;
+	public static final int ENTRY_BYTES = TranspositionTable.ENTRY_BYTES;
+	// Largest cache that can be mapped at once
+	public static final int MAX_MEGABYTES = 1024;
+	// Age in generations at which entries stop getting older
+	public static final int MAX_AGE = 128;
+
+	// Keys mixed into the hashes of each kind of table in the cache
+	public static final long SOLVER_KEY = 0x5E0C_44B1_97A2_3D6FL;
+	public static final long BLUE_KEY = 0x13D9_B6E0_2C58_F741L;
+	public static final long RED_KEY = 0x6A2F_0873_D41E_9BC5L;
+
+	// caches mapped by this process, by the canonical path of their file
+	private static final Map<String, PositionCache> mapped =
+			new HashMap<String, PositionCache>();
+
+	public final int n; // the N value of the board the positions are on
+	public final long fingerprint; // fingerprint of the weights of the scores
+	private final MappedByteBuffer entries; // the buckets, mapped read-write
+	private final int slots; // number of entries in the buckets
+	private final int mask; // bucket mask, the number of buckets minus 1
+	private final int generation; // number of processes which opened the cache
+
+
+	/** constructor
+	 * @param n the N value of the board the positions are on
+	 * @param fingerprint fingerprint of the weights of the scores
+	 * @param entries the mapped buckets
+	 * @param slots number of entries in the buckets
+	 * @param generation generation of the entries stored from now on
+	 */
+	private PositionCache(int n, long fingerprint, MappedByteBuffer entries,
+			int slots, int generation){
+		this.n = n;
+		this.fingerprint = fingerprint;
+		this.entries = entries;
+		this.slots = slots;
+		this.mask = slots/2 - 1;
+		this.generation = generation;
+	}
+
+	/**
+	 * Map the cache in a file read-write, making the file if there is none
+	 * or emptying it if it holds scores of another VERSION or other weights.
+	 * Only the first call for a file in a process maps it and starts a new
+	 * generation; later calls return the same cache.
+	 * @param path the file holding the cache
+	 * @param n the N value of the board the positions are on
+	 * @param megabytes size of a new cache, rounded down to a power of
+	 * 		  two entries; a cache already in the file keeps its size
+	 * @param fingerprint fingerprint of the Weights the scores are found with
+	 * @throws IOException if the file can't be used, is not a cache of
+	 * 		   positions on the same board, or is already mapped by this
+	 * 		   process for other weights
+	 */
+	public static synchronized PositionCache open(String path, int n,
+			int megabytes, long fingerprint) throws IOException {
+		String key = new File(path).getCanonicalPath();
+		PositionCache cache = mapped.get(key);
+		if (cache == null) {
+			cache = map(path, n, megabytes, fingerprint);
+			mapped.put(key, cache);
+		} else if (cache.n != n || cache.fingerprint != fingerprint) {
+			throw new IOException(path+" is already in use by a player of n="
+					+cache.n+" or with other weights");
+		}
+		return cache;
+	}
+
+	/** Map the cache in a file, see open() */
+	private static PositionCache map(String path, int n, int megabytes,
+			long fingerprint) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+			int generation = 0;
+			if (file.length() > 0) {
+				if (file.length() < 8 || file.readInt() != MAGIC)
+					throw new IOException(path+" is not a position cache");
+				if (file.readInt() != n)
+					throw new IOException(path+" is not a cache of n="+n+" positions");
+				// scores of another engine or other weights are no use
+				if (file.length() >= HEADER_BYTES) {
+					generation = file.readInt() + 1;
+					if (file.readInt() != VERSION || file.readLong() != fingerprint)
+						file.setLength(0);
+				} else {
+					file.setLength(0);
+				}
+			}
+			if (file.length() == 0) {
+				long entries = Math.max(2L, (long) Math.min(megabytes, MAX_MEGABYTES)
+						* 1024 * 1024 / ENTRY_BYTES);
+				file.setLength(HEADER_BYTES + Long.highestOneBit(entries)*ENTRY_BYTES);
+				file.seek(0);
+				file.writeInt(MAGIC);
+				file.writeInt(n);
+				generation = 0;
+			}
+			file.seek(8);
+			file.writeInt(generation);
+			file.writeInt(VERSION);
+			file.writeLong(fingerprint);
+
+			long bytes = file.length() - HEADER_BYTES;
+			long slots = bytes / ENTRY_BYTES;
+			if (slots < 2 || Long.bitCount(slots) != 1 || bytes % ENTRY_BYTES != 0)
+				throw new IOException(path+" is a cache of a bad size: "
+						+file.length()+" bytes");
+			PositionCache cache = new PositionCache(n, fingerprint,
+					file.getChannel().map(FileChannel.MapMode.READ_WRITE,
+							HEADER_BYTES, bytes),
+					(int) slots, generation);
+			if (generation > 0 && generation % (MAX_AGE/2) == 0)
+				cache.ageOut();
+			return cache;
+		}
+	}
+
+	/** Make every entry at least MAX_AGE old exactly MAX_AGE old, which
+	 *  keeps the age of every entry below 1.5*MAX_AGE generations until
+	 *  this is done again MAX_AGE/2 generations later */
+	private void ageOut(){
+		int oldest = (generation - MAX_AGE) & 0xFF;
+		for (int slot = 0; slot < slots; slot++) {
+			long data = data(slot);
+			if (data != 0 && age(data) == MAX_AGE)
+				write(slot, key(slot, data), TranspositionTable.pack(
+						TranspositionTable.score(data), TranspositionTable.depth(data),
+						TranspositionTable.bound(data), oldest,
+						TranspositionTable.move(data)));
+		}
+	}
+
+	/** Look up the position with the given hash
+	 * @return the packed data word of the entry or 0 if there is none
+	 */
+	public long probe(long hash){
+		int slot = (int) (hash & mask) * 2;
+		long data = data(slot);
+		if(data != 0 && key(slot, data) == hash)
+			return data;
+		data = data(slot+1);
+		if(data != 0 && key(slot+1, data) == hash)
+			return data;
+		return 0;
+	}
+
+	/** Store the result of searching the position with the given hash
+	 * @param hash hash of the position
+	 * @param score score found by the search
+	 * @param depth depth searched below the position
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param move edge index of the best move or -1 if there is none
+	 */
+	public void store(long hash, int score, int depth, int bound, int move){
+		long entry = TranspositionTable.pack(score, depth, bound, generation & 0xFF, move);
+		int slot = (int) (hash & mask) * 2;
+
+		// the deep slot is replaced by the same position, or a result
+		// at least as deep as the one in it less its age in generations
+		long data = data(slot);
+		if(data == 0 || key(slot, data) == hash
+				|| depth >= TranspositionTable.depth(data) - age(data))
+			write(slot, hash, entry);
+		else
+			write(slot+1, hash, entry);
+	}
+
+	/** Return the number of generations since the entry was stored,
+	 *  up to MAX_AGE */
+	private int age(long data){
+		return Math.min(MAX_AGE, (generation - TranspositionTable.age(data)) & 0xFF);
+	}
+
+	/** Return the data word of a slot */
+	private long data(int slot){
+		return entries.getLong(slot*ENTRY_BYTES + 8);
+	}
+
+	/** Return the hash of a slot whose data word was read as data,
+	 *  which is only right if the hash word was written with that data
+	 *  word (see TranspositionTable, as every player of a process shares
+	 *  the cache) */
+	private long key(int slot, long data){
+		return entries.getLong(slot*ENTRY_BYTES) ^ data;
+	}
+
+	/** Write an entry to a slot */
+	private void write(int slot, long hash, long data){
+		entries.putLong(slot*ENTRY_BYTES, hash ^ data);
+		entries.putLong(slot*ENTRY_BYTES + 8, data);
+	}
+}
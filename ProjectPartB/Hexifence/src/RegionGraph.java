@@ -0,0 +1,236 @@
+/** RegionGraph class for keeping track of how the hexagonal cells of a
+ * board are joined: two cells are joined while the edge they share is
+ * still open, and a region is a set of cells joined to each other.
+ * Board builds it the first time it is asked for
+ * - the size of the region of a cell,
+ * - the number of cells with exactly two open edges, or
+ * - the number of chains of such cells,
+ * and from then on updates it as edges are taken and given back, so that
+ * all three can be read at any time without looking at the whole board.
+ * A board nobody asks pays nothing for it when making and undoing moves.
+ *
+ * Edges only ever get taken as the game goes on, which splits regions,
+ * so union-find does not fit. Instead every cell keeps the bit set of
+ * its region: taking an edge inside a region floods out from one side
+ * of it to see whether the region splits, and giving the edge back
+ * merges the two sides again, which is exact because moves are undone
+ * in the reverse order they are made. The bit sets of the cells joined
+ * to each cell make the flood a few operations per cell reached.
+ *
+ * A chain is a path of cells with two open edges, joined through those
+ * edges. Such a path has one link fewer than it has cells, so the number
+ * of chains is the number of two-edge cells less the number of open edges
+ * between two two-edge cells (not counting loops, which close up on
+ * themselves and have as many links as cells).
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+
+public class RegionGraph {
+
+	private final int numHexes; // Number of hexagonal cells on the board
+	private final int[][] edgeHexes; // Indices of the 1 or 2 hexagons of each edge
+
+	private final long[] joined; // cells joined to each cell by an open edge
+	private final long[] region; // cells in the region of each cell
+	private long twoEdgeCells = 0; // cells with exactly two open edges
+	private int twoEdgeLinks = 0; // open edges between two two-edge cells
+
+
+	/** constructor, of an empty graph to build()
+	 * @param n the N value of the board
+	 */
+	public RegionGraph(int n){
+		HexGeometry geometry = HexGeometry.of(n);
+		numHexes = geometry.numHexes;
+		edgeHexes = geometry.edgeHexes;
+		joined = new long[numHexes];
+		region = new long[numHexes];
+	}
+
+	/** Work the graph out from scratch for a board, to be kept up to
+	 *  date with takeEdge() and giveBackEdge() from then on
+	 * @param openEdges bit set of the open edges of the board
+	 * @param hexOpen number of open edges of each hexagon
+	 */
+	public void build(long[] openEdges, byte[] hexOpen){
+		Arrays.fill(joined, 0);
+		Arrays.fill(region, 0);
+
+		// every open shared edge joins its two cells
+		for(int w = 0; w<openEdges.length; w++){
+			for(long rest = openEdges[w]; rest != 0; rest &= rest-1){
+				int[] hexes = edgeHexes[64*w + Long.numberOfTrailingZeros(rest)];
+				if(hexes.length == 2){
+					joined[hexes[0]] |= 1L << hexes[1];
+					joined[hexes[1]] |= 1L << hexes[0];
+				}
+			}
+		}
+
+		twoEdgeCells = 0;
+		for(int h = 0; h<numHexes; h++){
+			if(hexOpen[h] == 2)
+				twoEdgeCells |= 1L << h;
+		}
+		// every link is seen from both of its cells
+		twoEdgeLinks = 0;
+		for(long rest = twoEdgeCells; rest != 0; rest &= rest-1)
+			twoEdgeLinks += Long.bitCount(joined[Long.numberOfTrailingZeros(rest)] & twoEdgeCells);
+		twoEdgeLinks /= 2;
+
+		for(int h = 0; h<numHexes; h++){
+			if(region[h] == 0){
+				long cells = flood(h, -1);
+				for(long rest = cells; rest != 0; rest &= rest-1)
+					region[Long.numberOfTrailingZeros(rest)] = cells;
+			}
+		}
+	}
+
+	/** Make this graph a copy of the other one, which must be of
+	 *  a board of the same size
+	 * @param other the graph to copy
+	 */
+	public void copyFrom(RegionGraph other){
+		System.arraycopy(other.joined, 0, joined, 0, numHexes);
+		System.arraycopy(other.region, 0, region, 0, numHexes);
+		twoEdgeCells = other.twoEdgeCells;
+		twoEdgeLinks = other.twoEdgeLinks;
+	}
+
+	/** Update the graph after the edge e has been taken
+	 * @param e the edge taken
+	 * @param hexOpen number of open edges of each hexagon, after the move
+	 */
+	public void takeEdge(int e, byte[] hexOpen){
+		int[] hexes = edgeHexes[e];
+
+		// the two cells are no longer joined
+		if(hexes.length == 2){
+			int g = hexes[0];
+			int h = hexes[1];
+			if(isTwoEdge(g) && isTwoEdge(h))
+				twoEdgeLinks--;
+			joined[g] &= ~(1L << h);
+			joined[h] &= ~(1L << g);
+		}
+
+		// each cell of the edge has one open edge fewer
+		for(int h : hexes){
+			if(hexOpen[h] == 2)
+				addTwoEdge(h);
+			else if(hexOpen[h] == 1)
+				removeTwoEdge(h);
+		}
+
+		// which splits the region unless the cells are joined another way
+		if(hexes.length == 2){
+			int g = hexes[0];
+			int h = hexes[1];
+			long side = flood(g, h);
+			if((side & (1L << h)) == 0){
+				long other = region[g] & ~side;
+				for(long rest = side; rest != 0; rest &= rest-1)
+					region[Long.numberOfTrailingZeros(rest)] = side;
+				for(long rest = other; rest != 0; rest &= rest-1)
+					region[Long.numberOfTrailingZeros(rest)] = other;
+			}
+		}
+	}
+
+	/** Update the graph after the edge e has been given back
+	 * @param e the edge given back
+	 * @param hexOpen number of open edges of each hexagon, after the undo
+	 */
+	public void giveBackEdge(int e, byte[] hexOpen){
+		int[] hexes = edgeHexes[e];
+
+		// each cell of the edge has one open edge more
+		for(int h : hexes){
+			if(hexOpen[h] == 2)
+				addTwoEdge(h);
+			else if(hexOpen[h] == 3)
+				removeTwoEdge(h);
+		}
+
+		// the two cells are joined again, and so are their regions
+		if(hexes.length == 2){
+			int g = hexes[0];
+			int h = hexes[1];
+			joined[g] |= 1L << h;
+			joined[h] |= 1L << g;
+			if(isTwoEdge(g) && isTwoEdge(h))
+				twoEdgeLinks++;
+			if(region[g] != region[h]){
+				long cells = region[g] | region[h];
+				for(long rest = cells; rest != 0; rest &= rest-1)
+					region[Long.numberOfTrailingZeros(rest)] = cells;
+			}
+		}
+	}
+
+	/** Return the number of cells in the region of the hexagon h,
+	 *  which is 1 once h has been captured
+	 */
+	public int getRegionSize(int h){
+		return Long.bitCount(region[h]);
+	}
+
+	/** Return the bit set of the cells in the region of the hexagon h */
+	public long getRegion(int h){
+		return region[h];
+	}
+
+	/** Return the number of cells with exactly two open edges */
+	public int getTwoEdgeCells(){
+		return Long.bitCount(twoEdgeCells);
+	}
+
+	/** Return the number of chains of cells with two open edges */
+	public int getChains(){
+		return Long.bitCount(twoEdgeCells) - twoEdgeLinks;
+	}
+
+	/** Return true if the hexagon h has exactly two open edges */
+	private boolean isTwoEdge(int h){
+		return (twoEdgeCells & (1L << h)) != 0;
+	}
+
+	/** Count the hexagon h as a two-edge cell, linked to the
+	 *  two-edge cells it is joined to */
+	private void addTwoEdge(int h){
+		twoEdgeCells |= 1L << h;
+		twoEdgeLinks += Long.bitCount(joined[h] & twoEdgeCells);
+	}
+
+	/** Stop counting the hexagon h as a two-edge cell */
+	private void removeTwoEdge(int h){
+		twoEdgeCells &= ~(1L << h);
+		twoEdgeLinks -= Long.bitCount(joined[h] & twoEdgeCells);
+	}
+
+	/**
+	 * Return the cells joined to the hexagon from, directly or through
+	 * other cells, stopping early once the hexagon to is reached
+	 * @param to hexagon to stop at, or -1 to flood the whole region
+	 */
+	private long flood(int from, int to){
+		long reached = 1L << from;
+		long frontier = reached;
+		while(frontier != 0){
+			if(to >= 0 && (reached & (1L << to)) != 0)
+				break;
+			long next = 0;
+			for(; frontier != 0; frontier &= frontier-1)
+				next |= joined[Long.numberOfTrailingZeros(frontier)];
+			frontier = next & ~reached;
+			reached |= frontier;
+		}
+		return reached;
+	}
+}
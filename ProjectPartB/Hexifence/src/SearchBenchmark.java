@@ -0,0 +1,136 @@
+/** SearchBenchmark class for measuring how fast the minimax search of
+ * SongtNmirpuri is and checking that it still finds the same moves.
+ *
+ * Every board of a corpus of files in the text format of Part A (see
+ * Board.read(), e.g. ProjectPartA/test) is searched by iterative
+ * deepening from depth 1 to a fixed depth, with blue to move and a
+ * new player, and so an empty transposition table, for each board.
+ * The whole corpus is searched once first so that the JIT has compiled
+ * the search before anything is timed.
+ *
+ * For every board and depth one tab-separated line is printed:
+ *   position n open depth score row col nodes ms nodes/s
+ * where nodes are the positions searched by that iteration, ms the time
+ * taken to reach the end of it from the start of depth 1 (time to depth)
+ * and nodes/s the speed of that iteration. The first eight columns only
+ * depend on what the search does, so the output of two versions can be
+ * compared with e.g. cut -f1-8; the last two show how fast it does it.
+ * Files which are not boards are reported on stderr and skipped.
+ *
+ * usage: java SearchBenchmark [depth] <position file>...
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.util.*;
+import aiproj.hexifence.*;
+
+public class SearchBenchmark implements Piece {
+
+	// Default depth of the last iteration
+	public static final int DEPTH = 5;
+
+	/** A board of the corpus and the name to print it with */
+	private static class Position {
+		String name;
+		Board board;
+	}
+
+
+	public static void main(String[] args) throws IOException {
+		int first = 0;
+		int depth = DEPTH;
+		if (args.length > 0 && args[0].matches("\\d+")) {
+			depth = Integer.parseInt(args[0]);
+			first = 1;
+		}
+		if (args.length <= first) {
+			System.err.println("usage: java SearchBenchmark [depth] <position file>...");
+			System.exit(1);
+		}
+		// cached results would leave nothing to search
+		System.clearProperty("hexifence.cache");
+
+		List<Position> corpus = new ArrayList<Position>();
+		for (int k = first; k < args.length; k++)
+			corpus.addAll(load(args[k]));
+
+		// let the JIT compile the search before anything is timed
+		for (Position position : corpus)
+			search(position, depth, null);
+
+		System.out.println("position\tn\topen\tdepth\tscore\trow\tcol\tnodes\tms\tnodes/s");
+		long[] total = new long[2];
+		for (Position position : corpus) {
+			long[] searched = search(position, depth, System.out);
+			total[0] += searched[0];
+			total[1] += searched[1];
+		}
+		System.err.printf("%d positions, %d nodes in %.1fms, %.0f nodes/s%n",
+				corpus.size(), total[0], total[1] / 1e6,
+				(total[1] == 0) ? 0 : total[0] * 1e9 / total[1]);
+	}
+
+	/**
+	 * Read every board in a file, reporting on stderr if it holds
+	 * something other than boards
+	 * @param path the file
+	 * @return the boards read before anything which is not a board
+	 */
+	public static List<Position> load(String path) throws IOException {
+		List<Position> positions = new ArrayList<Position>();
+		try (BufferedReader in = new BufferedReader(new FileReader(path))) {
+			for (Board board = Board.read(in); board != null; board = Board.read(in)) {
+				Position position = new Position();
+				position.board = board;
+				position.name = path;
+				positions.add(position);
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(path+": skipped, "+e.getMessage());
+		}
+		// number the boards of files holding more than one
+		if (positions.size() > 1) {
+			for (int k = 0; k < positions.size(); k++)
+				positions.get(k).name += "#"+(k+1);
+		}
+		return positions;
+	}
+
+	/**
+	 * Search a board from depth 1 to the given depth
+	 * @param output where to print a line for each depth, or null
+	 * @return {nodes, nanoseconds} of the whole search
+	 */
+	private static long[] search(Position position, int depth, PrintStream output){
+		Board board = position.board;
+		SongtNmirpuri player = new SongtNmirpuri();
+		player.init(board.n, BLUE);
+		player.gameBoard.copyFrom(board);
+		Searcher searcher = player.searcher;
+
+		long nodes = 0;
+		long start = System.nanoTime();
+		long elapsed = 0;
+		for (int d = 1; d <= Math.min(depth, board.getPossibleMoves()); d++) {
+			long before = searcher.nodes;
+			long iterationStart = System.nanoTime();
+			searcher.startSearch(Long.MAX_VALUE, false);
+			int[] result = player.minimax(d, Searcher.MYTURN,
+					Searcher.MININT, Searcher.MAXINT);
+			long now = System.nanoTime();
+			long iterationNodes = searcher.nodes - before;
+			nodes += iterationNodes;
+			elapsed = now - start;
+			if (output != null)
+				output.printf("%s\t%d\t%d\t%d\t%d\t%d\t%d\t%d\t%.3f\t%.0f%n",
+						position.name, board.n, board.getPossibleMoves(), d,
+						result[0], result[1], result[2], iterationNodes,
+						elapsed / 1e6, iterationNodes * 1e9 / Math.max(1, now - iterationStart));
+		}
+		return new long[] {nodes, elapsed};
+	}
+}
@@ -0,0 +1,149 @@
+/** SearchEvents class holding the Java Flight Recorder events of the
+ * player and the tournament runner, so that their timings can be seen
+ * in one recording with the garbage collections, CPU load and so on:
+ *   java -XX:StartFlightRecording:filename=game.jfr ...
+ *   jfr print --events hexifence.MakeMove game.jfr
+ *
+ * Every event is recorded whenever a recording is running, and each one
+ * can be switched off by name in the recording settings, e.g. by setting
+ * enabled to false in hexifence.jfc and recording with
+ *   -XX:StartFlightRecording:settings=default,settings=hexifence.jfc,...
+ * With no recording, or the event switched off, an event costs the
+ * creation of an object which the JIT removes and a check of a flag;
+ * anything costing more is only worked out once shouldCommit() is true.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import jdk.jfr.*;
+
+public class SearchEvents {
+
+	// Category of every event in the recording
+	public static final String CATEGORY = "Hexifence";
+
+
+	/** One call of SongtNmirpuri.makeMove() */
+	@Name("hexifence.MakeMove")
+	@Label("Make Move")
+	@Description("A move chosen and made by SongtNmirpuri")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static class MakeMove extends Event {
+		@Label("Board Size")
+		public int n;
+		@Label("Piece")
+		@Description("1 for blue, 2 for red")
+		public int piece;
+		@Label("Move Number")
+		@Description("Moves made by the player before this one")
+		public int moveNumber;
+		@Label("Row")
+		public int row;
+		@Label("Column")
+		public int col;
+		@Label("Source")
+		@Description("How the move was chosen: table, book, solver, safe or search")
+		public String source;
+		@Label("Open Edges")
+		@Description("Open edges before the move")
+		public int openEdges;
+		@Label("Depth")
+		@Description("Depth of the last completed iteration, 0 if there was no search")
+		public int depth;
+		@Label("Nodes")
+		@Description("Positions searched or solved by every thread")
+		public long nodes;
+		@Label("Score")
+		@Description("Score of the search or the opening book, or final margin of the solved table or the solver, 0 for a safe move")
+		public int score;
+	}
+
+	/** One completed iteration of SongtNmirpuri.iterativeDeepening() */
+	@Name("hexifence.Iteration")
+	@Label("Iteration")
+	@Description("One completed depth of iterative deepening")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static class Iteration extends Event {
+		@Label("Board Size")
+		public int n;
+		@Label("Piece")
+		public int piece;
+		@Label("Open Edges")
+		public int openEdges;
+		@Label("Depth")
+		public int depth;
+		@Label("Nodes")
+		@Description("Positions searched by every thread in this iteration")
+		public long nodes;
+		@Label("Score")
+		public int score;
+		@Label("Row")
+		@Description("Row of the best move of the iteration")
+		public int row;
+		@Label("Column")
+		public int col;
+	}
+
+	/** One call of SongtNmirpuri.opponentMove() */
+	@Name("hexifence.OpponentMove")
+	@Label("Opponent Move")
+	@Description("A move of the opponent made on the board of SongtNmirpuri")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static class OpponentMove extends Event {
+		@Label("Board Size")
+		public int n;
+		@Label("Piece")
+		@Description("1 for blue, 2 for red, the player told of the move")
+		public int piece;
+		@Label("Row")
+		public int row;
+		@Label("Column")
+		public int col;
+		@Label("Result")
+		@Description("Cells captured by the move, or -1 if it was illegal")
+		public int result;
+		@Label("Open Edges")
+		@Description("Open edges after the move")
+		public int openEdges;
+	}
+
+	/** One game of Tournament.playGame() */
+	@Name("hexifence.Game")
+	@Label("Game")
+	@Description("A game refereed by Tournament")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static class Game extends Event {
+		@Label("Board Size")
+		public int n;
+		@Label("Game")
+		public int game;
+		@Label("First Player")
+		public String first;
+		@Label("Second Player")
+		public String second;
+		@Label("First Colour")
+		@Description("1 if the first player took blue, 2 if red")
+		public int firstColour;
+		@Label("Margin")
+		@Description("Cells of the first player less those of the second")
+		public int margin;
+		@Label("Forfeit")
+		@Description("0 if the first player forfeited, 1 if the second, -1 if neither")
+		public int forfeit;
+		@Label("Moves")
+		@Description("Moves made by both players, the opening left out")
+		public int moves;
+		@Label("First Player Time")
+		@Timespan(Timespan.NANOSECONDS)
+		public long firstNanos;
+		@Label("Second Player Time")
+		@Timespan(Timespan.NANOSECONDS)
+		public long secondNanos;
+	}
+}
@@ -0,0 +1,17 @@
+/** SearchListener interface for being told how SongtNmirpuri chose
+ * each of its moves (see SongtNmirpuri.addListener())
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+public interface SearchListener {
+
+	/**
+	 * Called by the player after each of its moves, on the thread
+	 * which called makeMove()
+	 * @param stats what the player did to choose the move
+	 */
+	void moveMade(SearchStats stats);
+}
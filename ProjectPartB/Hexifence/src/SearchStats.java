@@ -0,0 +1,86 @@
+/** SearchStats class holding what SongtNmirpuri did to choose one move,
+ * handed to every SearchListener of the player after the move.
+ *
+ * Counts cover every searching thread of the player, and nodes include
+ * the positions solved by the EndgameSolver. The branching factor is
+ * the nodes of the last completed iteration of iterative deepening over
+ * the nodes of the one before, which is how much more each extra ply of
+ * depth costs. It is only given for a search on one thread: other
+ * threads both add nodes of their own and fill the shared table with
+ * results which save the main search nodes, so no count of nodes by
+ * iteration says how the tree grows.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+public class SearchStats {
+
+	// How the move was chosen
+	public static final int TABLE = 0; // looked up in the SolvedTable
+	public static final int BOOK = 1; // looked up in the OpeningBook
+	public static final int SOLVER = 2; // solved by the EndgameSolver
+	public static final int SAFE = 3; // a move giving nothing away
+	public static final int SEARCH = 4; // iterative deepening
+	public static final String[] SOURCES = {"table", "book", "solver", "safe", "search"};
+
+	public int piece; // BLUE(1) or RED(2), the player who moved
+	public int moveNumber; // moves made by the player before this one, from 0
+	public int row; // row of the move
+	public int col; // column of the move
+	public int source; // how the move was chosen, TABLE to SEARCH
+	public int openEdges; // open edges before the move
+	public long nanos; // wall time taken to choose the move
+	// score of the search or the book, or final margin of the table
+	// or the solver, 0 for a safe move
+	public int score;
+
+	public long nodes; // positions searched or solved
+	public long leaves; // positions reached at the depth limit
+	// streaks worked out by ChainAnalyser, one per leaf evaluated,
+	// i.e. not found in the table and not at the end of the game
+	public long streakCalls;
+	// cut-offs by index of the move causing it in the ordered moves
+	public long[] cutoffs;
+	// depth of the last completed iteration, 0 if there was no search
+	public int depth;
+	// nodes searched by the main search thread in each completed
+	// iteration, by depth
+	public long[] iterationNodes;
+	public int threads = 1; // number of threads searching
+
+
+	/** constructor
+	 * @param edges number of edges of the board
+	 */
+	public SearchStats(int edges){
+		cutoffs = new long[edges];
+		iterationNodes = new long[edges+1];
+	}
+
+	/** Return the nodes of the last completed iteration over the nodes
+	 *  of the one before, or NaN if fewer than two were completed or
+	 *  the search used more than one thread */
+	public double getBranchingFactor(){
+		if (threads > 1 || depth < 2 || iterationNodes[depth-1] == 0)
+			return Double.NaN;
+		return (double) iterationNodes[depth] / iterationNodes[depth-1];
+	}
+
+	/** Return the number of cut-offs at every move index */
+	public long getCutoffs(){
+		long total = 0;
+		for (long count : cutoffs)
+			total += count;
+		return total;
+	}
+
+	@Override
+	public String toString(){
+		return String.format("move %d %d,%d by %s: %d open, score %d, %.1fms,"
+				+" %d nodes, %d leaves, depth %d, branching %.2f, %d cut-offs",
+				moveNumber, row, col, SOURCES[source], openEdges, score, nanos / 1e6,
+				nodes, leaves, depth, getBranchingFactor(), getCutoffs());
+	}
+}
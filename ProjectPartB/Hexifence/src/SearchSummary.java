@@ -0,0 +1,97 @@
+/** SearchSummary class adding up the SearchStats of every move of a game,
+ * to print at the end of the game where the time of the player went.
+ * SongtNmirpuri prints one to stderr at the end of every game when run
+ * with -Dhexifence.stats=true.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.PrintStream;
+
+public class SearchSummary implements SearchListener {
+
+	// Cut-offs at move indices below this are shown one by one
+	public static final int CUTOFF_INDICES = 3;
+
+	public int piece; // BLUE(1) or RED(2), the player summed up
+	public int moves = 0; // moves made
+	public int[] sources = new int[SearchStats.SOURCES.length]; // moves by source
+	public long nanos = 0; // wall time of all the moves
+	public long maxNanos = 0; // wall time of the longest move
+	public long searchNanos = 0; // wall time of the moves searched or solved
+	public long nodes = 0;
+	public long leaves = 0; // positions reached at the depth limit
+	public long streakCalls = 0; // leaves evaluated
+	public long[] cutoffs; // cut-offs by move index
+	public int searched = 0; // moves chosen by iterative deepening
+	public long depths = 0; // depths reached by them, added up
+	public int maxDepth = 0;
+	public int branchingMoves = 0; // moves with a branching factor
+	public double branching = 0; // their branching factors, added up
+
+
+	@Override
+	public void moveMade(SearchStats stats){
+		if (cutoffs == null)
+			cutoffs = new long[stats.cutoffs.length];
+		piece = stats.piece;
+		moves++;
+		sources[stats.source]++;
+		nanos += stats.nanos;
+		maxNanos = Math.max(maxNanos, stats.nanos);
+		if (stats.source == SearchStats.SOLVER || stats.source == SearchStats.SEARCH)
+			searchNanos += stats.nanos;
+		nodes += stats.nodes;
+		leaves += stats.leaves;
+		streakCalls += stats.streakCalls;
+		for (int k = 0; k < cutoffs.length; k++)
+			cutoffs[k] += stats.cutoffs[k];
+		if (stats.source == SearchStats.SEARCH) {
+			searched++;
+			depths += stats.depth;
+			maxDepth = Math.max(maxDepth, stats.depth);
+		}
+		if (!Double.isNaN(stats.getBranchingFactor())) {
+			branchingMoves++;
+			branching += stats.getBranchingFactor();
+		}
+	}
+
+	/** Print the totals of the moves so far
+	 * @param output where to print them
+	 */
+	public void print(PrintStream output){
+		StringBuilder bySource = new StringBuilder();
+		for (int s = 0; s < sources.length; s++)
+			bySource.append((s == 0) ? "" : ", ").append(SearchStats.SOURCES[s])
+					.append(' ').append(sources[s]);
+		output.printf("search summary of %s: %d moves (%s)%n",
+				(piece == aiproj.hexifence.Piece.BLUE) ? "blue" : "red", moves, bySource);
+		output.printf("  %d nodes, %d leaves, %d evaluated, %.0f nodes/s over %.1fms"
+				+" searching or solving%n", nodes, leaves, streakCalls,
+				(searchNanos == 0) ? 0 : nodes * 1e9 / searchNanos, searchNanos / 1e6);
+		// there is no branching factor of a search on several threads
+		output.printf("  depth reached: mean %.1f, max %d; branching factor: %s%n",
+				(searched == 0) ? 0 : (double) depths / searched, maxDepth,
+				(branchingMoves == 0) ? "none"
+				: String.format("mean %.2f", branching / branchingMoves));
+
+		// how often the first moves tried were good enough
+		long total = 0;
+		for (long count : (cutoffs == null) ? new long[0] : cutoffs)
+			total += count;
+		StringBuilder byIndex = new StringBuilder();
+		long later = total;
+		for (int k = 0; k < CUTOFF_INDICES && cutoffs != null && k < cutoffs.length; k++) {
+			byIndex.append(String.format("move %d %.1f%%, ", k+1,
+					(total == 0) ? 0 : 100.0 * cutoffs[k] / total));
+			later -= cutoffs[k];
+		}
+		output.printf("  %d cut-offs: %slater %.1f%%%n", total, byIndex,
+				(total == 0) ? 0 : 100.0 * later / total);
+		output.printf("  time per move: mean %.1fms, longest %.1fms%n",
+				(moves == 0) ? 0 : nanos / 1e6 / moves, maxNanos / 1e6);
+	}
+}
@@ -0,0 +1,455 @@
+/** Searcher class holding everything one thread needs to run
+ * the minimax search of SongtNmirpuri: its own board to make and undo
+ * moves on, the transposition table, the killer moves and the history
+ * table, and the clock of the current search.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ *
+ * Attribution:
+ *  The basic frame of minimax function in this script was referred from
+ *  www.ntu.edu.sg/home/ehchua/programming/java/JavaGame_TicTacToe_AI.html
+ *
+ */
+
+
+import java.util.*;
+import aiproj.hexifence.*;
+
+public class Searcher implements Piece {
+
+	// maximum int for using alpha beta pruning
+	public static final int MAXINT =  Integer.MAX_VALUE / 2;
+	// minimum int for using alpha beta pruning
+	public static final int MININT =  Integer.MIN_VALUE / 2;
+
+	public static final int MYTURN =  1;
+	public static final int OPPTURN =  2;
+
+	// score for win, lose and draw
+	public static final int WIN = 10000;
+	public static final int LOSE = -10000;
+	public static final int DRAW = LOSE/2;
+
+	// Number of nodes searched between looks at the clock
+	public static final int CLOCK_INTERVAL = 256;
+
+	// Move ordering keys, tried from the highest key down
+	public static final int TT_MOVE_KEY = 1 << 30; // best move found before
+	public static final int CAPTURE_KEY = 3 << 27; // + number of cells captured
+	public static final int SAFE_KEY = 2 << 27; // gives nothing away
+	public static final int OTHER_KEY = 1 << 27; // everything else
+	public static final int KILLER_KEY = 1 << 26; // added to killer moves
+	// Number of killer moves kept for each ply
+	public static final int KILLERS = 2;
+
+	// Hashed into positions where the opponent is to move
+	public static final long OPPTURN_KEY = 0x2F8A_61C3_9D0E_B547L;
+	// Depth stored for finished games, which never need searching again
+	public static final int FINAL_DEPTH = 0xFF;
+
+	public Board board; // the board to search on, owned by this searcher
+	private HexGeometry geometry; // index tables and symmetries of the board
+	public int piece; // either BLUE(1) or RED(2)
+
+	// results of earlier searches, by position
+	public TranspositionTable table;
+
+	// true to break ties between equally ordered moves randomly
+	public boolean randomTies;
+	// multipliers of the features of the evaluation function
+	public Weights weights = new Weights();
+
+	// chains and loops of the board, for evaluating leaves
+	private ChainAnalyser chains;
+
+	private long deadline; // System.nanoTime() at which to stop searching
+	private boolean canStop; // false while the search must not be stopped
+	private boolean timeUp; // true once the search has been stopped
+	private volatile boolean stopped; // set by stop(), possibly from another thread
+	// counts of the search, never reset by the searcher (see SearchStats)
+	public long nodes = 0; // positions searched
+	public long leaves = 0; // positions reached at the depth limit
+	// calls to ChainAnalyser.countStreak(), by the evaluation of the
+	// leaves not found in the table and not at the end of the game
+	public long streakCalls = 0;
+	public long[] cutoffs; // cut-offs by index of the move in the ordered moves
+	private int clock; // nodes searched since the last look at the clock
+
+	private int ply; // number of moves made below the root of the search
+	private int[][] killers; // quiet moves which caused cut-offs, by ply
+	private int[][] history; // cut-offs by quiet moves, by turn and edge
+
+	// possible moves and their ordering keys, by ply, so that
+	// searching a node allocates nothing
+	private int[][] moveStack;
+	private int[][] keyStack;
+	private int lastBestEdge; // best move of the last node searched, or -1
+
+
+	/** constructor
+	 * @param board the board to search on
+	 * @param piece either BLUE(1) or RED(2), the player to search for
+	 * @param table the transposition table to use
+	 * @param randomTies true to break ties between moves randomly
+	 */
+	public Searcher(Board board, int piece, TranspositionTable table,
+			boolean randomTies){
+		this.board = board;
+		this.piece = piece;
+		this.table = table;
+		this.randomTies = randomTies;
+		this.chains = new ChainAnalyser(board);
+		this.geometry = HexGeometry.of(board.n);
+		int edges = geometry.numEdges;
+		killers = new int[edges+1][KILLERS];
+		history = new int[OPPTURN+1][edges];
+		moveStack = new int[edges+1][edges];
+		cutoffs = new long[edges];
+		keyStack = new int[edges+1][edges];
+		ageHistory();
+	}
+
+	/**
+	 * Start the clock of a new search
+	 * @param deadline System.nanoTime() at which to stop searching
+	 * @param canStop false if the search must run to the end regardless
+	 */
+	public void startSearch(long deadline, boolean canStop){
+		this.deadline = deadline;
+		this.canStop = canStop;
+		this.timeUp = false;
+		this.stopped = false;
+		this.clock = 0;
+	}
+
+	/** Return true if the last search was stopped before it finished
+	 */
+	public boolean isTimeUp(){
+		return timeUp;
+	}
+
+	/** Stop the current search within the next CLOCK_INTERVAL nodes,
+	 *  even if it could not otherwise be stopped.
+	 *  May be called from another thread than the one searching
+	 */
+	public void stop(){
+		stopped = true;
+	}
+
+	/**
+	 * Return the score of the given root move searched to the given depth,
+	 * where the move is made by this searcher's player
+	 */
+	public int searchMove(Move move, int depth, int alpha, int beta){
+		int e = board.getEdgeIndex(move);
+		int captured = board.setBoard(e, move.P);
+		ply++;
+		int score = search(depth - 1, (captured > 0) ? MYTURN : OPPTURN,
+				alpha, beta);
+		ply--;
+		board.undoMove(e);
+		return score;
+	}
+
+	/**
+	 * Return the moves of this searcher's player at the root,
+	 * best first, in the order minimax would try them
+	 */
+	public List<Move> rootMoves(){
+		int symmetry = board.getCanonicalSymmetry();
+		long entry = table.probe(board.getHash(symmetry));
+		int ttEdge = (entry != 0)
+				? fromCanonical(symmetry, TranspositionTable.move(entry)) : -1;
+		int[] edges = moveStack[ply];
+		int count = board.generatePosbMoves(edges, randomTies);
+		orderMoves(edges, keyStack[ply], count, ttEdge, MYTURN);
+
+		List<Move> posbMoves = new ArrayList<Move>(count);
+		for (int k = 0; k < count; k++) {
+			Move move = new Move();
+			move.Row = board.getEdgeRow(edges[k]);
+			move.Col = board.getEdgeCol(edges[k]);
+			move.P = piece;
+			posbMoves.add(move);
+		}
+		return posbMoves;
+	}
+
+	/**
+	 * Remember the result of a search of every root move,
+	 * as ParallelSearch does not go through minimax at the root
+	 * @param score score of the best move
+	 * @param depth depth searched
+	 * @param move the best move
+	 */
+	public void storeRoot(int score, int depth, Move move){
+		int symmetry = board.getCanonicalSymmetry();
+		table.store(board.getHash(symmetry), score, depth,
+				TranspositionTable.EXACT,
+				toCanonical(symmetry, board.getEdgeIndex(move)));
+	}
+
+	/**
+	 * return the next move to make using minimax Search tree
+	 * + alpha beta pruning
+	 * Once the time for this move is up the search stops, leaving
+	 * timeUp set; the result of that search must then be thrown away
+	 * @return {score, row, col} of the best move
+	 */
+	public int[] minimax(int depth, int turn, int alpha, int beta){
+		int score = search(depth, turn, alpha, beta);
+		if (lastBestEdge < 0)
+			return new int[] {score, -1, -1};
+		return new int[] {score, board.getEdgeRow(lastBestEdge),
+				board.getEdgeCol(lastBestEdge)};
+	}
+
+	/**
+	 * Minimax search with alpha beta pruning, returning only the score
+	 * and leaving the best move in lastBestEdge.
+	 * Moves are edge indices kept in the buffers of each ply,
+	 * so nothing is allocated while searching
+	 * @return the score of the position on the board
+	 */
+	private int search(int depth, int turn, int alpha, int beta){
+		int alphaOrig = alpha;
+		int betaOrig = beta;
+		lastBestEdge = -1;
+		nodes++;
+
+		// stop searching once the time for this move is up
+		if (++clock >= CLOCK_INTERVAL) {
+			clock = 0;
+			if (stopped || (canStop && System.nanoTime() >= deadline))
+				timeUp = true;
+		}
+		if (timeUp)
+			return 0;
+		if (depth <= 0)
+			leaves++;
+
+		// use the stored result if this position, or a rotation or
+		// reflection of it, has been searched at least as deep before
+		// and the bound is good enough
+		int symmetry = board.getCanonicalSymmetry();
+		long hash = board.getHash(symmetry) ^ (turn == MYTURN ? 0 : OPPTURN_KEY);
+		long entry = table.probe(hash);
+		int ttEdge = (entry != 0)
+				? fromCanonical(symmetry, TranspositionTable.move(entry)) : -1;
+		if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+			int stored = TranspositionTable.score(entry);
+			int bound = TranspositionTable.bound(entry);
+			if (bound == TranspositionTable.EXACT
+					|| (bound == TranspositionTable.LOWER && stored >= beta)
+					|| (bound == TranspositionTable.UPPER && stored <= alpha)) {
+				lastBestEdge = ttEdge;
+				return stored;
+			}
+		}
+
+		int score;
+
+		// if game finished, set the score
+		int winner = getWinner();
+		if(winner != 0){
+			if(winner == Piece.DEAD)
+				score = DRAW;
+			else if(winner == piece)
+				score = WIN;
+			else
+				score = LOSE;
+			table.store(hash, score, FINAL_DEPTH, TranspositionTable.EXACT, -1);
+			return score;
+		}
+
+		// if reached the limit depth
+		else if(depth <= 0){
+			score = 0;
+			if (piece == BLUE)
+				score += weights.myCapture*board.blueHex
+						- weights.theirCapture*board.redHex;
+			else
+				score += weights.myCapture*board.redHex
+						- weights.theirCapture*board.blueHex;
+
+			// Get the max streak
+			streakCalls++;
+			if (turn == MYTURN)
+				score += weights.myStreak*chains.countStreak();
+			else
+				score -= weights.theirStreak*chains.countStreak();
+
+			table.store(hash, score, 0, TranspositionTable.EXACT, -1);
+			return score;
+		}
+
+		// neither limit depth reached nor game finished:
+		// generate all possible moves, the most promising first
+		int[] edges = moveStack[ply];
+		int count = board.generatePosbMoves(edges, randomTies);
+		orderMoves(edges, keyStack[ply], count, ttEdge, turn);
+		int p = piece;
+		if (turn == OPPTURN)
+			p = (piece == Piece.BLUE) ? Piece.RED : Piece.BLUE;
+		int bestEdge = -1;
+
+		for (int k = 0; k < count; k++) {
+			int e = edges[k];
+
+			// try this move for the current "player"
+			int captured = board.setBoard(e, p);
+			ply++;
+
+			// if this move captures, the same player moves again
+			int next = turn;
+			if (captured == 0)
+				next = (turn == MYTURN) ? OPPTURN : MYTURN;
+			score = search(depth - 1, next, alpha, beta);
+
+			// undo move
+			ply--;
+			board.undoMove(e);
+
+			// the scores are no good once the search has been stopped
+			if (timeUp) {
+				lastBestEdge = -1;
+				return 0;
+			}
+
+			if (turn == MYTURN) {  // needs to maximize value
+				if (score > alpha) {
+					alpha = score;
+					bestEdge = e;
+				}
+			} else {  // needs to minimize value
+				if (score < beta) {
+					beta = score;
+					bestEdge = e;
+				}
+			}
+
+			// cut-off
+			if (alpha >= beta) {
+				cutoffs[k]++;
+				// remember quiet moves which cause cut-offs
+				if (captured == 0)
+					recordCutoff(e, turn, depth);
+				break;
+			}
+		}
+
+		// remember the result with the kind of bound it is
+		int bound;
+		if (turn == MYTURN)
+			bound = (alpha <= alphaOrig) ? TranspositionTable.UPPER
+					: (alpha >= beta) ? TranspositionTable.LOWER
+					: TranspositionTable.EXACT;
+		else
+			bound = (beta >= betaOrig) ? TranspositionTable.LOWER
+					: (alpha >= beta) ? TranspositionTable.UPPER
+					: TranspositionTable.EXACT;
+		table.store(hash, (turn == MYTURN) ? alpha : beta,
+				depth, bound, toCanonical(symmetry, bestEdge));
+
+		lastBestEdge = bestEdge;
+		return (turn == MYTURN) ? alpha : beta;
+	}
+
+
+	/**
+	 * Sort the moves so that the best move found before comes first,
+	 * then moves which capture, then moves which give nothing away,
+	 * then the rest. Killer moves and then moves with more cut-offs
+	 * come first among the moves which capture nothing
+	 * @param edges edge indices of the moves to sort
+	 * @param keys array to hold the ordering key of each move
+	 * @param count number of moves
+	 * @param ttEdge edge of the best move found before, or -1
+	 * @param turn MYTURN or OPPTURN
+	 */
+	public void orderMoves(int[] edges, int[] keys, int count, int ttEdge,
+			int turn) {
+		for (int k = 0; k < count; k++) {
+			int e = edges[k];
+			int key;
+			if (e == ttEdge)
+				key = TT_MOVE_KEY;
+			else if (board.getCaptureValue(e) > 0)
+				key = CAPTURE_KEY + board.getCaptureValue(e);
+			else {
+				key = board.isSafe(e) ? SAFE_KEY : OTHER_KEY;
+				if (killers[ply][0] == e || killers[ply][1] == e)
+					key += KILLER_KEY;
+				key += Math.min(history[turn][e], KILLER_KEY-1);
+			}
+			keys[k] = key;
+		}
+
+		// insertion sort from the highest key down,
+		// which keeps the generated order between equal keys
+		for (int k = 1; k < count; k++) {
+			int e = edges[k];
+			int key = keys[k];
+			int m = k - 1;
+			while (m >= 0 && keys[m] < key) {
+				keys[m+1] = keys[m];
+				edges[m+1] = edges[m];
+				m--;
+			}
+			keys[m+1] = key;
+			edges[m+1] = e;
+		}
+	}
+
+	/** Return the edge e of the board as it is on the board after
+	 *  the symmetry g, where the table keeps it, or -1 if e is -1 */
+	private int toCanonical(int g, int e){
+		return (e < 0) ? -1 : geometry.symmetricEdge(g, e);
+	}
+
+	/** Return the edge e of the board after the symmetry g
+	 *  as it is on the board, or -1 if e is -1 */
+	private int fromCanonical(int g, int e){
+		return (e < 0) ? -1 : geometry.symmetricEdge(geometry.inverseSymmetry(g), e);
+	}
+
+	/**
+	 * Remember a quiet move which caused a cut-off
+	 * as a killer move of this ply and in the history table
+	 */
+	private void recordCutoff(int e, int turn, int depth) {
+		if (killers[ply][0] != e) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = e;
+		}
+		history[turn][e] += depth*depth;
+	}
+	
+	/**
+	 * Forget the killer moves and halve the history table
+	 * as the position at the root has changed
+	 */
+	public void ageHistory() {
+		for (int[] plyKillers : killers)
+			Arrays.fill(plyKillers, -1);
+		for (int[] turnHistory : history)
+			for (int e = 0; e < turnHistory.length; e++)
+				turnHistory[e] /= 2;
+	}
+	
+	/** Return the winner on the board being searched
+	 * @return EMPTY if the game has not finished, otherwise BLUE, RED or DEAD
+	 */
+	private int getWinner(){
+		if(board.getPossibleMoves() > 0)
+			return Piece.EMPTY;
+		if(board.redHex > board.blueHex)
+			return Piece.RED;
+		else if(board.redHex < board.blueHex)
+			return Piece.BLUE;
+		else
+			return Piece.DEAD;
+	}
+}
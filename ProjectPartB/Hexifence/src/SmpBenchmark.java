@@ -0,0 +1,107 @@
+/** SmpBenchmark class for measuring how long the search of SongtNmirpuri
+ * takes to reach a given depth with different numbers of threads.
+ *
+ * The same random positions (the same for every run) are searched by
+ * iterative deepening to a fixed depth with 1 thread, 2 threads and so
+ * on, starting from empty transposition tables each time, and the
+ * total time to depth is printed for each number of threads. The random
+ * moves leading to a position are made by blue and red in turn, a player
+ * moving again after a capture, until blue is to move with no more open
+ * edges than asked for.
+ *
+ * usage: java SmpBenchmark [n] [open edges] [depth] [max threads]
+ * 		  [positions] [root|lazy]
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.util.*;
+import aiproj.hexifence.*;
+
+public class SmpBenchmark {
+
+	// Defaults of the command line arguments
+	public static final int N = 3;
+	public static final int OPEN_EDGES = 36;
+	public static final int DEPTH = 6;
+	public static final int POSITIONS = 8;
+	public static final String SMP_MODE = "lazy";
+
+	// Seed of the random moves leading to the first position
+	public static final long SEED = 2017;
+
+
+	public static void main(String[] args){
+		int n = (args.length > 0) ? Integer.parseInt(args[0]) : N;
+		int openEdges = (args.length > 1) ? Integer.parseInt(args[1]) : OPEN_EDGES;
+		int depth = (args.length > 2) ? Integer.parseInt(args[2]) : DEPTH;
+		int maxThreads = (args.length > 3) ? Integer.parseInt(args[3])
+				: Runtime.getRuntime().availableProcessors();
+		int positions = (args.length > 4) ? Integer.parseInt(args[4]) : POSITIONS;
+		String smpMode = (args.length > 5) ? args[5] : SMP_MODE;
+
+		System.out.println("n="+n+" open edges="+openEdges+" depth="+depth
+				+" positions="+positions+" mode="+smpMode);
+		// let the JIT compile the search before anything is timed
+		timeToDepth(n, openEdges, depth, positions, 1, smpMode);
+
+		System.out.println("threads   total ms   speedup");
+		long oneThread = 0;
+		for(int threads = 1; threads <= maxThreads; threads++){
+			long total = timeToDepth(n, openEdges, depth, positions,
+					threads, smpMode);
+			if(threads == 1)
+				oneThread = total;
+			System.out.printf("%7d %10d %9.2f%n", threads, total/1000000,
+					(double) oneThread/total);
+		}
+	}
+
+	/**
+	 * Return the total time in nanoseconds taken to search every
+	 * position to the given depth with the given number of threads
+	 */
+	private static long timeToDepth(int n, int openEdges, int depth,
+			int positions, int threads, String smpMode){
+		System.setProperty("hexifence.threads", Integer.toString(threads));
+		System.setProperty("hexifence.smp", smpMode);
+		SongtNmirpuri player = new SongtNmirpuri();
+		player.init(n, Piece.BLUE);
+		Board board = player.gameBoard;
+
+		Random random = new Random(SEED);
+		long total = 0;
+		for(int k = 0; k<positions; k++){
+			// play random moves up to the position, blue to move
+			Deque<Move> moves = new ArrayDeque<Move>();
+			int turn = Piece.BLUE;
+			while(board.getPossibleMoves() > 1
+					&& (board.getPossibleMoves() > openEdges || turn != Piece.BLUE)){
+				List<Move> posbMoves = board.generatePosbMoves(turn, false);
+				Move move = posbMoves.get(random.nextInt(posbMoves.size()));
+				// after a capture the same player moves again
+				if(board.setBoard(move) == 0)
+					turn = (turn == Piece.BLUE) ? Piece.RED : Piece.BLUE;
+				moves.push(move);
+			}
+
+			// search it from scratch, with every table cleared
+			for(Searcher searcher : player.searchers){
+				searcher.table.clear();
+				searcher.ageHistory();
+			}
+			if(player.parallelSearch != null)
+				player.parallelSearch.newSearch();
+			long start = System.nanoTime();
+			player.iterativeDeepening(depth, Long.MAX_VALUE);
+			total += System.nanoTime() - start;
+
+			// and go back to the empty board for the next one
+			while(!moves.isEmpty())
+				board.undoMove(moves.pop());
+		}
+		return total;
+	}
+}
@@ -0,0 +1,238 @@
+/** SolvedTable class holding the value of every position of an n=2 game.
+ *
+ * An n=2 board has 30 edges, so a position is fully described by the
+ * set of edges taken so far, a 30 bit number with bit e set for each
+ * taken edge e (edges indexed as in HexGeometry). The table holds, for
+ * every such number, the margin of cells the player to move will still
+ * capture over the other player with perfect play from both sides,
+ * stored as margin+7 in 4 bits, two positions to a byte with the even
+ * position in the low 4 bits. That makes 2^29 bytes (512MB).
+ *
+ * Taking an edge only ever sets a bit, so every position after a move
+ * has a larger number than the position before it, and the table is
+ * generated backwards from the full board to the empty one. The
+ * positions are split into blocks by their top bits; a block only
+ * depends on blocks with more top bits set, so all blocks with the same
+ * number of top bits set are generated at once by several threads.
+ *
+ * usage: java -Xmx1g SolvedTable <file> [threads]
+ * The player then uses the table with -Dhexifence.solved.table=<file>
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class SolvedTable {
+
+	// The board size the table is for
+	public static final int N = 2;
+	// Number of edges on the board, and bits in a position
+	public static final int EDGES = 30;
+	// Number of positions, and bytes in the table
+	public static final int POSITIONS = 1 << EDGES;
+	public static final int BYTES = POSITIONS / 2;
+	// Added to a margin to store it in 4 bits
+	public static final int OFFSET = 7;
+
+	// Number of top bits splitting the positions into blocks
+	private static final int BLOCK_BITS = 8;
+
+	// the table, mapped read-only from the file
+	private final MappedByteBuffer table;
+	// bit set of the 1 or 2 hexagons of each edge
+	private final int[] hexMaskA;
+	private final int[] hexMaskB;
+
+
+	/** constructor
+	 * @param table the mapped table
+	 */
+	private SolvedTable(MappedByteBuffer table){
+		this.table = table;
+		int[][] masks = hexMasks();
+		hexMaskA = masks[0];
+		hexMaskB = masks[1];
+	}
+
+	/**
+	 * Map a table generated by main() read-only
+	 * @param path the file holding the table
+	 * @throws IOException if the file can't be read or is not a table
+	 */
+	public static SolvedTable open(String path) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+			if (file.length() != BYTES)
+				throw new IOException(path+" is not a table of n="+N
+						+" positions: "+file.length()+" bytes");
+			return new SolvedTable(file.getChannel().map(
+					FileChannel.MapMode.READ_ONLY, 0, BYTES));
+		}
+	}
+
+	/**
+	 * Return the margin of the player to move with perfect play
+	 * @param taken bit set of the taken edges
+	 */
+	public int value(int taken){
+		int b = table.get(taken >>> 1);
+		return ((taken & 1) == 0 ? b & 0xF : (b >>> 4) & 0xF) - OFFSET;
+	}
+
+	/**
+	 * Return the margin of the player to move on an n=2 board
+	 * with perfect play, from now to the end of the game
+	 * @param board the board, which must be of n=2
+	 */
+	public int value(Board board){
+		return value(taken(board));
+	}
+
+	/**
+	 * Return the best move of the player to move on an n=2 board,
+	 * the first one in edge order if several are as good
+	 * @param board the board, which must be of n=2
+	 * @return edge index of the move, or -1 if the game is over
+	 */
+	public int bestEdge(Board board){
+		int taken = taken(board);
+		int best = Integer.MIN_VALUE;
+		int bestEdge = -1;
+		for (int open = ~taken & (POSITIONS-1); open != 0; open &= open-1) {
+			int e = Integer.numberOfTrailingZeros(open);
+			int after = taken | (1 << e);
+			int captured = captured(after, hexMaskA[e], hexMaskB[e]);
+			int score = (captured > 0) ? captured + value(after) : -value(after);
+			if (score > best) {
+				best = score;
+				bestEdge = e;
+			}
+		}
+		return bestEdge;
+	}
+
+	/** Return the bit set of the taken edges of an n=2 board */
+	private static int taken(Board board){
+		return ~(int) board.getOpenEdges(0) & (POSITIONS-1);
+	}
+
+	/** Return the number of the given hexagons all of whose edges
+	 *  are taken in the given position */
+	private static int captured(int taken, int hexA, int hexB){
+		int captured = 0;
+		if ((taken & hexA) == hexA)
+			captured++;
+		if (hexB != 0 && (taken & hexB) == hexB)
+			captured++;
+		return captured;
+	}
+
+	/** Return the bit set of the edges of the first and second hexagon
+	 *  of each edge, 0 for the second if there is only one */
+	private static int[][] hexMasks(){
+		HexGeometry geometry = HexGeometry.of(N);
+		int[][] masks = new int[2][EDGES];
+		for (int e = 0; e < EDGES; e++) {
+			int[] hexes = geometry.edgeHexes[e];
+			masks[0][e] = (int) geometry.hexEdges[hexes[0]][0];
+			if (hexes.length > 1)
+				masks[1][e] = (int) geometry.hexEdges[hexes[1]][0];
+		}
+		return masks;
+	}
+
+
+	/**
+	 * Generate the table and write it to a file
+	 * @param args the file to write and the number of threads to use
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: java -Xmx1g SolvedTable <file> [threads]");
+			System.exit(1);
+		}
+		int threads = (args.length > 1) ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+
+		long start = System.nanoTime();
+		byte[] table = generate(threads);
+		System.out.println("generated in "
+				+(System.nanoTime()-start)/1000000+"ms");
+		System.out.println("value of the empty board: "
+				+(((table[0] & 0xF)) - OFFSET));
+
+		try (FileOutputStream out = new FileOutputStream(args[0])) {
+			out.write(table);
+		}
+	}
+
+	/**
+	 * Work out the value of every position, from the full board back
+	 * @param threads number of threads to use
+	 * @return the table
+	 */
+	public static byte[] generate(int threads) throws Exception {
+		final byte[] table = new byte[BYTES];
+		final int[][] masks = hexMasks();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			// blocks with more top bits set come first
+			for (int layer = BLOCK_BITS; layer >= 0; layer--) {
+				List<Callable<Object>> blocks = new ArrayList<Callable<Object>>();
+				for (int block = 0; block < 1 << BLOCK_BITS; block++) {
+					if (Integer.bitCount(block) != layer)
+						continue;
+					final int first = block << (EDGES-BLOCK_BITS);
+					blocks.add(Executors.callable(new Runnable() {
+						public void run(){
+							generateBlock(table, masks, first);
+						}
+					}));
+				}
+				for (Future<Object> block : pool.invokeAll(blocks))
+					block.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		return table;
+	}
+
+	/**
+	 * Work out the value of every position in the block starting at first,
+	 * from the last position of the block back
+	 */
+	private static void generateBlock(byte[] table, int[][] masks, int first){
+		int[] hexA = masks[0];
+		int[] hexB = masks[1];
+		int full = POSITIONS-1;
+		for (int taken = first + (1 << (EDGES-BLOCK_BITS)) - 1;
+				taken >= first; taken--) {
+			int best = 0; // the full board is worth nothing more
+			if (taken != full) {
+				best = Integer.MIN_VALUE;
+				for (int open = ~taken & full; open != 0; open &= open-1) {
+					int e = Integer.numberOfTrailingZeros(open);
+					int after = taken | (1 << e);
+					int b = table[after >>> 1];
+					int value = ((after & 1) == 0 ? b & 0xF : (b >>> 4) & 0xF) - OFFSET;
+					int captured = captured(after, hexA[e], hexB[e]);
+					int score = (captured > 0) ? captured + value : -value;
+					if (score > best)
+						best = score;
+				}
+			}
+			int i = taken >>> 1;
+			if ((taken & 1) == 0)
+				table[i] = (byte) ((table[i] & 0xF0) | (best + OFFSET));
+			else
+				table[i] = (byte) ((table[i] & 0x0F) | ((best + OFFSET) << 4));
+		}
+	}
+}
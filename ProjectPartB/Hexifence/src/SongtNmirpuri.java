@@ -14,48 +14,187 @@
  */
 
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
 import aiproj.hexifence.*;
 
 public class SongtNmirpuri implements Player, Piece {
 	
-	// maximum int for using alpha beta pruning
-	public static final int MAXINT =  Integer.MAX_VALUE / 2;
-	// minimum int for using alpha beta pruning
-	public static final int MININT =  Integer.MIN_VALUE / 2;
-	
-	public static final int MYTURN =  1;
-	public static final int OPPTURN =  2;
-	
 	public Board gameBoard; // the board to put pieces on
 	public int piece; // either BLUE(1) or RED(2) 
 	
 	// represent the state of this board
 	public int boardState = Piece.EMPTY; 
 	
-	// score for win, lose and draw
-	public static final int WIN = 10000;
-	public static final int LOSE = -10000;
-	public static final int DRAW = LOSE/2;
 	
-	
-	// Evaluation Features (score multipliers)
-	public static final int SAFEST_MOVE = 5;
+	// Evaluation Features (score multipliers), the default Weights
+	public static final int SAFEST_MOVE = 5; // score of a safe move
 	public static final int MY_STREAK = 2;
 	public static final int THEIR_STREAK = 2;
 	public static final int MY_CAPTURE = 1;
 	public static final int THEIR_CAPTURE = 3;
 	public static final int SIZE_DIVISION = 11;
-	public static final int LIMIT_DEPTH = 3;
-	public static final int DEEPER_LIMIT = 6;
 
+	// Default time budget of each move in milliseconds,
+	// can be changed with -Dhexifence.move.ms=<milliseconds>
+	public static final int MOVE_MILLIS = 500;
+	// Default size of the transposition table in megabytes,
+	// can be changed with -Dhexifence.tt.mb=<megabytes>
+	public static final int TT_MEGABYTES = 1;
+	// Default number of threads to search with,
+	// can be changed with -Dhexifence.threads=<threads>
+	public static final int THREADS = 1;
+	// Default way of searching with more than one thread,
+	// can be changed with -Dhexifence.smp=<root|lazy>
+	public static final String SMP_MODE = "root";
+	// Default number of open edges below which the game is solved exactly,
+	// on n=3 and bigger boards and on n=2 boards, whose cells share more of
+	// their edges and take longer to solve with as many open edges;
+	// can be changed with -Dhexifence.solver.edges=<edges>
+	public static final int SOLVER_EDGES = 24;
+	public static final int SOLVER_EDGES_N2 = 16;
+	// Default size of a new position cache in megabytes,
+	// can be changed with -Dhexifence.cache.mb=<megabytes>
+	public static final int CACHE_MEGABYTES = 64;
+	// Default least depth of a search result kept in the position cache,
+	// can be changed with -Dhexifence.cache.depth=<depth>
+	public static final int CACHE_DEPTH = 3;
+
+	// time budget of each move in milliseconds
+	public long moveMillis;
+	// score multipliers of the evaluation function, given to the
+	// constructor or with -Dhexifence.weights=<weights> (see Weights)
+	public Weights weights;
+	
+	// the search on gameBoard
+	public Searcher searcher;
+	// the search split over several threads, null unless in root mode
+	public ParallelSearch parallelSearch;
+	// helper threads sharing the table of searcher, null unless in lazy mode
+	public LazySmpSearch lazySmpSearch;
+	
+	// the exact search of the end of the game on gameBoard
+	public EndgameSolver solver;
+	// number of open edges below which the game is solved exactly
+	public int solverEdges;
+	// final margin (own cells less the opponent's) found by the solver
+	// for the last move it played, or Integer.MIN_VALUE if none yet
+	public int solvedMargin = Integer.MIN_VALUE;
+	// value of every n=2 position, null unless given with
+	// -Dhexifence.solved.table=<file> and playing on an n=2 board
+	public SolvedTable solvedTable;
+	// best moves of the first positions of a game, null unless given
+	// with -Dhexifence.opening.book=<file> for a board of this size
+	public OpeningBook openingBook;
+	// results of searches of earlier games, null unless given
+	// with -Dhexifence.cache=<file>
+	public PositionCache positionCache;
+	
+	// every searcher of this player, searcher first, whose counts
+	// are added up for the SearchStats of each move
+	public Searcher[] searchers;
+	// told how each move was chosen, see addListener()
+	public List<SearchListener> listeners = new ArrayList<SearchListener>();
+	// totals of this game printed to stderr at the end of it,
+	// null unless asked for with -Dhexifence.stats=true
+	public SearchSummary summary;
+	// number of moves made so far
+	public int moveNumber = 0;
+	// stats of the move being chosen, null unless there are listeners
+	private SearchStats stats;
+
+	
+	/** constructor, with the weights given with -Dhexifence.weights
+	 *  or the default weights
+	 */
+	public SongtNmirpuri() {
+		this(null);
+	}
+	
+	/** constructor
+	 * @param weights the weights of the evaluation function,
+	 * 		  or null for the weights given with -Dhexifence.weights
+	 */
+	public SongtNmirpuri(Weights weights) {
+		this.weights = weights;
+	}
 	
 	@Override
 	public int init(int n, int p) {
 		try{
 			gameBoard = new Board(n);
 			this.piece = p;
+			moveMillis = Long.getLong("hexifence.move.ms", MOVE_MILLIS);
+			int megabytes = Integer.getInteger("hexifence.tt.mb", TT_MEGABYTES);
+			boolean randomTies = Boolean.getBoolean("hexifence.shuffle");
+			if (weights == null) {
+				String text = System.getProperty("hexifence.weights");
+				weights = (text != null) ? Weights.parse(text) : new Weights();
+			}
+			TranspositionTable table = new TranspositionTable(megabytes);
+			searcher = new Searcher(gameBoard, p, table, randomTies);
+			searcher.weights = weights;
+			searchers = new Searcher[] {searcher};
+			solverEdges = Integer.getInteger("hexifence.solver.edges",
+					(n <= 2) ? SOLVER_EDGES_N2 : SOLVER_EDGES);
+			solver = new EndgameSolver(gameBoard, new TranspositionTable(megabytes));
+			String cachePath = System.getProperty("hexifence.cache");
+			if (cachePath != null) {
+				try {
+					positionCache = PositionCache.open(cachePath, n,
+							Integer.getInteger("hexifence.cache.mb", CACHE_MEGABYTES),
+							weights.fingerprint());
+				} catch (IOException e) {
+					// e.g. in use by a player with other weights: play without it
+					System.err.println(e.getMessage()+", playing without the cache");
+				}
+			}
+			if (positionCache != null) {
+				table.attachCache(positionCache,
+						(p == BLUE) ? PositionCache.BLUE_KEY : PositionCache.RED_KEY,
+						Integer.getInteger("hexifence.cache.depth", CACHE_DEPTH));
+				solver.table.attachCache(positionCache, PositionCache.SOLVER_KEY,
+						Searcher.FINAL_DEPTH);
+			}
+			String tablePath = System.getProperty("hexifence.solved.table");
+			if (tablePath != null && n == SolvedTable.N)
+				solvedTable = SolvedTable.open(tablePath);
+			String bookPath = System.getProperty("hexifence.opening.book");
+			if (bookPath != null) {
+				OpeningBook book = OpeningBook.open(bookPath);
+				if (book.n == n)
+					openingBook = book;
+			}
+			
+			// every other thread searches on a copy of the board
+			int threads = Integer.getInteger("hexifence.threads", THREADS);
+			String smpMode = System.getProperty("hexifence.smp", SMP_MODE);
+			if (threads > 1 && smpMode.equals("lazy")) {
+				Searcher[] helpers = new Searcher[threads-1];
+				for (int k = 0; k < helpers.length; k++) {
+					helpers[k] = new Searcher(new Board(n), p, table, randomTies);
+					helpers[k].weights = weights;
+				}
+				lazySmpSearch = new LazySmpSearch(searcher, helpers);
+				searchers = new Searcher[threads];
+				searchers[0] = searcher;
+				System.arraycopy(helpers, 0, searchers, 1, helpers.length);
+			} else if (threads > 1) {
+				searchers = new Searcher[threads];
+				searchers[0] = searcher;
+				for (int k = 1; k < threads; k++) {
+					searchers[k] = new Searcher(new Board(n), p,
+							new TranspositionTable(megabytes), randomTies);
+					searchers[k].weights = weights;
+				}
+				parallelSearch = new ParallelSearch(searchers);
+			}
+			
+			if (Boolean.getBoolean("hexifence.stats")) {
+				summary = new SearchSummary();
+				addListener(summary);
+			}
 		}catch (Exception e){
 			return -1;
 		}
@@ -65,167 +204,301 @@ public class SongtNmirpuri implements Player, Piece {
 	
 	/**
 	 * return the next move to make using minimax Search tree
-	 * + alpha beta pruning
-	 * @return Move : the next move
+	 * + alpha beta pruning on the board of this player
+	 * @return {score, row, col} of the best move
 	 */
 	public int[] minimax(int depth, int turn, int alpha, int beta){
-		List<Move> posbMoves;
+		return searcher.minimax(depth, turn, alpha, beta);
+	}
 
-		// generate all possible moves
-		if (turn == MYTURN) {
-			posbMoves = gameBoard.generatePosbMoves(piece);
-		} else {
-			if(piece == Piece.BLUE){
-				posbMoves = gameBoard.generatePosbMoves(Piece.RED);
-			}else{
-				posbMoves = gameBoard.generatePosbMoves(Piece.BLUE);
-			}
+
+	/**
+	 * Have a listener told how each of the following moves was chosen
+	 * @param listener the listener
+	 */
+	public void addListener(SearchListener listener){
+		listeners.add(listener);
+	}
+
+
+	@Override
+	public Move makeMove() {
+		Move move = new Move();
+		move.P = piece;
+		SearchEvents.MakeMove event = new SearchEvents.MakeMove();
+		event.begin();
+		long start = System.nanoTime();
+		long[] before = null;
+		if (!listeners.isEmpty() || event.isEnabled()) {
+			stats = new SearchStats(HexGeometry.of(gameBoard.n).numEdges);
+			stats.openEdges = gameBoard.getPossibleMoves();
+			stats.threads = searchers.length;
+			before = counts();
 		}
 		
+		int source = chooseMove(move);
+
+		// update the board
+		gameBoard.setBoard(move);
 		
-	    int score;
-	    int bestRow = -1;
-	    int bestCol = -1;
-	     
-	    
-		// if game finished, set the score
-		if(getWinner() != 0){
-			if(getWinner() == Piece.DEAD)
-				score = DRAW;
-			else if((getWinner() == Piece.BLUE && piece == Piece.BLUE) ||
-					(getWinner() == Piece.RED && piece == Piece.RED) )
-				score = WIN;
-			else
-				score = LOSE;
-			return new int[] {score, bestRow, bestCol};
+		if (stats != null) {
+			stats.nanos = System.nanoTime() - start;
+			long[] after = counts();
+			stats.nodes = after[0] - before[0];
+			stats.leaves = after[1] - before[1];
+			stats.streakCalls = after[2] - before[2];
+			for (int k = 0; k < stats.cutoffs.length; k++)
+				stats.cutoffs[k] = after[3+k] - before[3+k];
+			stats.piece = piece;
+			stats.moveNumber = moveNumber;
+			stats.row = move.Row;
+			stats.col = move.Col;
+			stats.source = source;
+			for (SearchListener listener : listeners)
+				listener.moveMade(stats);
+			if (event.shouldCommit()) {
+				event.n = gameBoard.n;
+				event.piece = piece;
+				event.moveNumber = moveNumber;
+				event.row = move.Row;
+				event.col = move.Col;
+				event.source = SearchStats.SOURCES[source];
+				event.openEdges = stats.openEdges;
+				event.depth = stats.depth;
+				event.nodes = stats.nodes;
+				event.score = stats.score;
+				event.commit();
+			}
+			stats = null;
 		}
+		moveNumber++;
+		endOfGame();
 		
-		// if reached the limit depth
-		else if(depth <= 0){
-			score = 0;
-			if (piece == BLUE)
-				score += MY_CAPTURE*gameBoard.blueHex
-						- THEIR_CAPTURE*gameBoard.redHex;
-			else
-				score += MY_CAPTURE*gameBoard.redHex
-						- THEIR_CAPTURE*gameBoard.blueHex;
+		// return the Move object
+		// so that the opponent can update their board config
+		return move;
+	}
+	
+	/**
+	 * Choose the next move without making it
+	 * @param move the move to fill in
+	 * @return how the move was chosen, SearchStats.TABLE to SEARCH
+	 */
+	private int chooseMove(Move move) {
+		int[] result = null;
 		
-			// Get the max streak
-			if (turn == MYTURN)
-				score += MY_STREAK*gameBoard.getMaxStreak(LIMIT_DEPTH, 0);
-			else
-				score -= THEIR_STREAK*gameBoard.getMaxStreak(LIMIT_DEPTH, 0);
-
-			return new int[] {score, bestRow, bestCol};
+		// on a solved board, look the best move up
+		if (solvedTable != null) {
+			int mine = (piece == BLUE) ? gameBoard.blueHex : gameBoard.redHex;
+			int theirs = (piece == BLUE) ? gameBoard.redHex : gameBoard.blueHex;
+			solvedMargin = mine - theirs + solvedTable.value(gameBoard);
+			int e = solvedTable.bestEdge(gameBoard);
+			move.Row = gameBoard.getEdgeRow(e);
+			move.Col = gameBoard.getEdgeCol(e);
+			if (stats != null)
+				stats.score = solvedMargin;
+			return SearchStats.TABLE;
 		}
 		
-		// neither limit depth reached nor game finished
-		else {
-			int getMaxByFirstMove = gameBoard.getMaxByOneMove();
-			
-			for (Move move : posbMoves) {
-
-				// try this move for the current "player"
-				int tempB = gameBoard.blueHex;
-				int tempR = gameBoard.redHex;
-	            gameBoard.setBoard(move);
-	            
-	            // play (and terminate at) a definite safe move if possible
-	            if (depth == LIMIT_DEPTH && turn == MYTURN) {
-	    			// Test if opp player can win something on the next move
-	            	int getMaxByTwoMoves = 
-	            			getMaxByFirstMove + gameBoard.getMaxByOneMove();
-	    			if (getMaxByTwoMoves == 0) {
-	    				return new int[] {SAFEST_MOVE, move.Row, move.Col};
-	    			}
-	    		}
-	            
-	            if (turn == MYTURN) {  // needs to maximize value
-	            	// if this move gives additional move
-	            	// the next layer is Max again
-	            	if (move.P == Piece.BLUE && tempB < gameBoard.blueHex){
-	            		score = minimax(depth - 1, MYTURN, alpha, beta)[0];	
-	            	}else if (move.P == Piece.RED && tempR < gameBoard.redHex){
-	            		score = minimax(depth - 1, MYTURN, alpha, beta)[0];	
-	            	}
-	            	// otherwise
-	            	else
-	            		score = minimax(depth - 1, OPPTURN, alpha, beta)[0];	
-	       
-	               if (score > alpha) {
-	                  alpha = score;
-	                  bestRow = move.Row;
-	                  bestCol = move.Col;
-
-	               }
-	            } else {  // needs to minimize value
-	            	// if this move gives additional move
-	            	// the next layer is Min again
-	            	if (move.P == Piece.BLUE && tempB < gameBoard.blueHex)
-	            		score = minimax(depth - 1, OPPTURN, alpha, beta)[0];	
-	            	else if (move.P == Piece.RED && tempR < gameBoard.redHex)
-	            		score = minimax(depth - 1, OPPTURN, alpha, beta)[0];
-	            	//otherwise
-	            	else
-	            		score = minimax(depth - 1, MYTURN, alpha, beta)[0];
-	            	
-	               if (score < beta) {
-	                  beta = score;
-	                  bestRow = move.Row;
-	                  bestCol = move.Col;
-	               }
-	            }
-	            
-	            // undo move
-	            gameBoard.undoMove(move);
-	            
-	            // cut-off
-	            if (alpha >= beta) break;
-	         }
-			
-	        return new int[] 
-	        		{(turn == MYTURN) ? alpha : beta, bestRow, bestCol};	
+		// in the opening, play the move of the book if it has the position
+		if (openingBook != null) {
+			int[] entry = openingBook.lookup(gameBoard);
+			if (entry != null) {
+				move.Row = gameBoard.getEdgeRow(entry[0]);
+				move.Col = gameBoard.getEdgeCol(entry[0]);
+				if (stats != null)
+					stats.score = entry[1];
+				return SearchStats.BOOK;
+			}
 		}
 		
-	}
-
-
-	@Override
-	public Move makeMove() {
-		Move move = new Move();
-		int[] result;
+		// entries from earlier moves can now be replaced first
+		searcher.table.newSearch();
+		searcher.ageHistory();
+		if (parallelSearch != null)
+			parallelSearch.newSearch();
+		long start = System.nanoTime();
+		long deadline = start + moveMillis*1000000L;
 		
-		// if the game is close to the end, increase the limit depth
-		if(gameBoard.getPossibleMoves() < 
-				gameBoard.size*gameBoard.size/SIZE_DIVISION)
-			result = minimax(DEEPER_LIMIT, MYTURN, MININT, MAXINT);
-		else
-			result = minimax(LIMIT_DEPTH, MYTURN, MININT, MAXINT);		
+		// close to the end, play the move with the best final margin,
+		// leaving half the time to search if it can't be found in time
+		if (gameBoard.getPossibleMoves() <= solverEdges) {
+			result = solver.solve(piece, start + moveMillis*500000L);
+			if (result != null) {
+				solvedMargin = result[0];
+				move.Row = result[1];
+				move.Col = result[2];
+				if (stats != null)
+					stats.score = result[0];
+				return SearchStats.SOLVER;
+			}
+		}
+		
+		// unless the game is close to the end,
+		// play a move which gives nothing away if there is one
+		if (gameBoard.getPossibleMoves() >=
+				gameBoard.size*gameBoard.size/weights.sizeDivision
+				&& findSafeMove(move)) {
+			return SearchStats.SAFE;
+		}
+		
+		// otherwise search until the time is up
+		result = iterativeDeepening(gameBoard.getPossibleMoves(), deadline);
 		
 		// get the next move
 		move.Row = result[1];
 		move.Col = result[2];
-		move.P = piece;
-
-		// update the board
-		gameBoard.setBoard(move);
+		if (stats != null)
+			stats.score = result[0];
+		return SearchStats.SEARCH;
+	}
+	
+	/**
+	 * Add up the counts of every searcher and the solver so far
+	 * @return {nodes, leaves, streak calls, cut-offs by move index...}
+	 */
+	private long[] counts() {
+		long[] counts = new long[3+searcher.cutoffs.length];
+		counts[0] = solver.nodes;
+		for (Searcher s : searchers) {
+			counts[0] += s.nodes;
+			counts[1] += s.leaves;
+			counts[2] += s.streakCalls;
+			for (int k = 0; k < s.cutoffs.length; k++)
+				counts[3+k] += s.cutoffs[k];
+		}
+		return counts;
+	}
+	
+	/** Return the positions searched or solved so far by every thread */
+	private long nodeCount() {
+		long nodes = solver.nodes;
+		for (Searcher s : searchers)
+			nodes += s.nodes;
+		return nodes;
+	}
+	
+	/** Print the summary of the game once it is over, if asked for */
+	private void endOfGame() {
+		if (summary != null && gameBoard.getPossibleMoves() == 0) {
+			summary.print(System.err);
+			summary = null;
+		}
+	}
+	
+	/**
+	 * Search the game board one ply deeper at a time until the given
+	 * depth is done or the time is up, keeping the best move of the
+	 * last completed iteration. Depth 1 is always completed.
+	 * @param maxDepth depth of the last iteration
+	 * @param deadline System.nanoTime() at which to stop searching
+	 * @return {score, row, col} of the best move
+	 */
+	public int[] iterativeDeepening(int maxDepth, long deadline) {
+		int[] result = null;
+		boolean canStop = false;
+		long nodes = nodeCount();
+		long mainNodes = searcher.nodes;
+		if (lazySmpSearch != null)
+			lazySmpSearch.start(deadline);
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			SearchEvents.Iteration event = new SearchEvents.Iteration();
+			event.begin();
+			int[] iteration;
+			if (parallelSearch == null) {
+				searcher.startSearch(deadline, canStop);
+				iteration = searcher.minimax(depth, Searcher.MYTURN,
+						Searcher.MININT, Searcher.MAXINT);
+				if (searcher.isTimeUp())
+					break;
+			} else {
+				iteration = parallelSearch.search(depth, deadline, canStop);
+				if (iteration == null)
+					break;
+			}
+			result = iteration;
+			canStop = true;
+			long total = nodeCount();
+			if (stats != null) {
+				stats.iterationNodes[depth] = searcher.nodes - mainNodes;
+				stats.depth = depth;
+			}
+			mainNodes = searcher.nodes;
+			if (event.shouldCommit()) {
+				event.n = gameBoard.n;
+				event.piece = piece;
+				event.openEdges = gameBoard.getPossibleMoves();
+				event.depth = depth;
+				event.nodes = total - nodes;
+				event.score = iteration[0];
+				event.row = iteration[1];
+				event.col = iteration[2];
+				event.commit();
+			}
+			nodes = total;
+			if (System.nanoTime() >= deadline)
+				break;
+		}
+		if (lazySmpSearch != null)
+			lazySmpSearch.stop();
+		return result;
+	}
+	
+	/**
+	 * Find a move after which neither player can capture anything
+	 * @param move the move to fill in with the safe move
+	 * @return true if there is a safe move
+	 */
+	public boolean findSafeMove(Move move) {
+		// nothing is safe if a cell can already be captured
+		if (gameBoard.getMaxByOneMove() > 0)
+			return false;
 		
-		// return the Move object
-		// so that the opponent can update their board config
-		return move;
+		// take the first safe move in random order
+		for (Move posbMove : gameBoard.generatePosbMoves(piece)) {
+			gameBoard.setBoard(posbMove);
+			boolean safe = gameBoard.getMaxByOneMove() == 0;
+			gameBoard.undoMove(posbMove);
+			if (safe) {
+				move.Row = posbMove.Row;
+				move.Col = posbMove.Col;
+				return true;
+			}
+		}
+		return false;
 	}
 
 	
 	
 	@Override
 	public int opponentMove(Move m) {
+		SearchEvents.OpponentMove event = new SearchEvents.OpponentMove();
+		event.begin();
 		// if the opponent's move is illegal, return INVALID
-		if (gameBoard.board[m.Row][m.Col].getCharValue() != '+'){
+		if (gameBoard.getCharValue(m.Row, m.Col) != '+'){
 			boardState = Piece.INVALID;
+			commit(event, m, boardState);
 			return boardState;
 		}
 		// update the board by this move
-		return gameBoard.setBoard(m);		
+		int captured = gameBoard.setBoard(m);
+		commit(event, m, captured);
+		endOfGame();
+		return captured;
+	}
+	
+	/** Fill in and commit the event of a move of the opponent
+	 *  if it is being recorded */
+	private void commit(SearchEvents.OpponentMove event, Move m, int result) {
+		if (event.shouldCommit()) {
+			event.n = gameBoard.n;
+			event.piece = piece;
+			event.row = m.Row;
+			event.col = m.Col;
+			event.result = result;
+			event.openEdges = gameBoard.getPossibleMoves();
+			event.commit();
+		}
 	}
 
 	
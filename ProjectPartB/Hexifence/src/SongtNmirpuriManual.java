@@ -64,7 +64,7 @@ public class SongtNmirpuriManual implements Player, Piece {
 	@Override
 	public int opponentMove(Move m) {
 		// if the opponent's move is illegal, return INVALID
-		if (gameBoard.board[m.Row][m.Col].getCharValue() != '+'){
+		if (gameBoard.getCharValue(m.Row, m.Col) != '+'){
 			boardState = Piece.INVALID;
 			return boardState;
 		}
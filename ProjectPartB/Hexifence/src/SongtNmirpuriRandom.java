@@ -51,7 +51,7 @@ public class SongtNmirpuriRandom implements Player, Piece {
 			int row = rand.nextInt(gameBoard.size);
 			int col = rand.nextInt(gameBoard.size);
 			
-			if(gameBoard.board[row][col].getCharValue() == '+'){
+			if(gameBoard.getCharValue(row, col) == '+'){
 				move.Row = row;
 				move.Col = col;
 				gameBoard.setBoard(move);
@@ -66,7 +66,7 @@ public class SongtNmirpuriRandom implements Player, Piece {
 	@Override
 	public int opponentMove(Move m) {
 		// if the opponent's move is illegal, return INVALID
-		if (gameBoard.board[m.Row][m.Col].getCharValue() != '+'){
+		if (gameBoard.getCharValue(m.Row, m.Col) != '+'){
 			boardState = Piece.INVALID;
 			return boardState;
 		}
@@ -0,0 +1,394 @@
+/** Tournament class for playing many games between two players at once.
+ *
+ * Every game is played by fresh instances of the two players, on a pool
+ * of worker threads, so several games run at the same time. The players
+ * swap colours every game, the first player taking blue in even games.
+ * The tournament keeps its own board to check each move and count the
+ * cells, so a player which makes an illegal move, rejects a legal one or
+ * throws loses the game by forfeit, with every cell left going to the
+ * other player, and the other games go on.
+ *
+ * Games can start from random openings instead of the empty board:
+ * openingMoves random moves which give nothing away, the same for both
+ * games of a pair (games 2k and 2k+1) so that each player plays the
+ * opening with both colours. Both players are told of every opening
+ * move through opponentMove().
+ *
+ * The result of each game is added to the totals as soon as it is over:
+ * wins, draws and losses of the first player, the margin of cells it won
+ * by, and the time each player took per move. The totals are printed
+ * every REPORT_EVERY games and at the end.
+ *
+ * usage: java Tournament <n> <first player class> <second player class>
+ * 		  [games] [threads]
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import aiproj.hexifence.*;
+
+public class Tournament implements Piece {
+
+	// Defaults of the command line arguments
+	public static final int GAMES = 100;
+	// Totals are printed after every this many games
+	public static final int REPORT_EVERY = 10;
+
+	// Index of each player in the totals
+	public static final int FIRST = 0;
+	public static final int SECOND = 1;
+
+	/** The result of one game, from the first player's point of view */
+	public static class GameResult {
+		public int game; // number of the game, from 0
+		public int firstColour; // BLUE or RED, the colour of the first player
+		public int margin; // cells of the first player less the second's
+		public int forfeit = -1; // FIRST or SECOND if that player forfeited
+		public String reason; // why the player forfeited
+		public int[] moves = new int[2]; // moves made by each player
+		public long[] nanos = new long[2]; // time taken by each player
+		public long[] maxNanos = new long[2]; // longest move of each player
+	}
+
+	public final int n; // the N value of the boards played on
+	public final String[] names; // names of the players
+	private final Supplier<Player>[] players; // make new players
+
+	// Totals of all the games over so far, from the first player's
+	// point of view
+	public int games = 0;
+	public int wins = 0;
+	public int draws = 0;
+	public int losses = 0;
+	public int[] forfeits = new int[2]; // forfeits of each player
+	public long marginSum = 0;
+	public long marginSquares = 0; // sum of the squared margins
+	public long[] moves = new long[2]; // moves made by each player
+	public long[] nanos = new long[2]; // time taken by each player
+	public long[] maxNanos = new long[2]; // longest move of each player
+
+	// where to print the totals, or null not to print them
+	public PrintStream output = System.out;
+
+	// number of random moves each game starts with
+	public int openingMoves = 0;
+	// seed of the random openings, pair k using seed+k
+	public long openingSeed = 0;
+
+	// true once no more games are to be started
+	private volatile boolean stopped = false;
+
+
+	/** constructor
+	 * @param n the N value of the boards to play on
+	 * @param first makes a new first player for each game
+	 * @param second makes a new second player for each game
+	 * @param firstName name of the first player
+	 * @param secondName name of the second player
+	 */
+	@SuppressWarnings("unchecked")
+	public Tournament(int n, Supplier<Player> first, Supplier<Player> second,
+			String firstName, String secondName){
+		this.n = n;
+		this.players = (Supplier<Player>[]) new Supplier<?>[] {first, second};
+		this.names = new String[] {firstName, secondName};
+	}
+
+	/**
+	 * Return something making a new instance of the named Player class
+	 * for each game
+	 * @throws ClassNotFoundException if there is no such class
+	 */
+	public static Supplier<Player> forClass(String name)
+			throws ClassNotFoundException {
+		final Class<? extends Player> type =
+				Class.forName(name).asSubclass(Player.class);
+		return new Supplier<Player>() {
+			public Player get(){
+				try {
+					return type.getDeclaredConstructor().newInstance();
+				} catch (ReflectiveOperationException e) {
+					throw new IllegalStateException("can't make a "+type.getName(), e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Play the games on a pool of worker threads, adding the result
+	 * of each game to the totals as soon as it is over
+	 * @param count number of games to play
+	 * @param threads number of games to play at once
+	 * @throws ExecutionException if a game failed other than by the
+	 * 		   forfeit of a player, such as by an Error thrown by one
+	 */
+	public void play(int count, int threads)
+			throws InterruptedException, ExecutionException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+			for (int k = 0; k < count; k++) {
+				final int game = k;
+				tasks.add(Executors.callable(new Runnable() {
+					public void run(){
+						if (!stopped)
+							record(playGame(game));
+					}
+				}));
+			}
+			for (Future<Object> task : pool.invokeAll(tasks))
+				task.get();
+		} finally {
+			pool.shutdown();
+		}
+		if (output != null && games % REPORT_EVERY != 0)
+			report(output);
+	}
+
+	/** Start no more games, letting the games being played finish
+	 */
+	public void stop(){
+		stopped = true;
+	}
+
+	/**
+	 * Return the moves of the opening of a pair of games, random moves
+	 * which capture nothing and give nothing away, stopping early if
+	 * there is no such move
+	 * @param pair number of the pair of games
+	 * @return edge indices of the moves, blue moving first
+	 */
+	public int[] opening(int pair){
+		Random random = new Random(openingSeed + pair);
+		Board board = new Board(n);
+		int[] edges = new int[HexGeometry.of(n).numEdges];
+		int[] opening = new int[openingMoves];
+		for (int m = 0; m < openingMoves; m++) {
+			int safe = 0;
+			int count = board.generatePosbMoves(edges, false);
+			for (int k = 0; k < count; k++) {
+				if (board.getCaptureValue(edges[k]) == 0 && board.isSafe(edges[k]))
+					edges[safe++] = edges[k];
+			}
+			if (safe == 0)
+				return Arrays.copyOf(opening, m);
+			opening[m] = edges[random.nextInt(safe)];
+			board.setBoard(opening[m], (m % 2 == 0) ? BLUE : RED);
+		}
+		return opening;
+	}
+
+	/**
+	 * Play one game between fresh instances of the players,
+	 * the first player taking blue in even games
+	 * and both games of a pair starting from the same opening
+	 * @param game number of the game
+	 * @return the result of the game
+	 */
+	public GameResult playGame(int game){
+		SearchEvents.Game event = new SearchEvents.Game();
+		event.begin();
+		GameResult result = referee(game);
+		if (event.shouldCommit()) {
+			event.n = n;
+			event.game = game;
+			event.first = names[FIRST];
+			event.second = names[SECOND];
+			event.firstColour = result.firstColour;
+			event.margin = result.margin;
+			event.forfeit = result.forfeit;
+			event.moves = result.moves[FIRST] + result.moves[SECOND];
+			event.firstNanos = result.nanos[FIRST];
+			event.secondNanos = result.nanos[SECOND];
+			event.commit();
+		}
+		return result;
+	}
+
+	/** Play game number game, see playGame() */
+	private GameResult referee(int game){
+		GameResult result = new GameResult();
+		result.game = game;
+		result.firstColour = (game % 2 == 0) ? BLUE : RED;
+		Board board = new Board(n);
+
+		// by colour, the players and which of the two each is
+		Player[] colours = new Player[3];
+		int[] index = new int[3];
+		index[result.firstColour] = FIRST;
+		index[other(result.firstColour)] = SECOND;
+		int turn = BLUE;
+		try {
+			for (int p = BLUE; p <= RED; p++) {
+				turn = p;
+				colours[p] = players[index[p]].get();
+				if (colours[p].init(n, p) < 0)
+					return forfeit(result, board, index[p], "init failed");
+			}
+
+			// play the opening on every board, capturing nothing
+			turn = BLUE;
+			for (int e : opening(game/2)) {
+				Move move = new Move();
+				move.Row = board.getEdgeRow(e);
+				move.Col = board.getEdgeCol(e);
+				move.P = turn;
+				board.setBoard(move);
+				for (int p = BLUE; p <= RED; p++) {
+					if (colours[p].opponentMove(move) < 0)
+						return forfeit(result, board, index[p],
+								"rejected opening "+move.Row+","+move.Col);
+				}
+				turn = other(turn);
+			}
+
+			while (board.getPossibleMoves() > 0) {
+				int i = index[turn];
+				long start = System.nanoTime();
+				Move move = colours[turn].makeMove();
+				long taken = System.nanoTime() - start;
+				result.moves[i]++;
+				result.nanos[i] += taken;
+				result.maxNanos[i] = Math.max(result.maxNanos[i], taken);
+
+				if (move == null || move.P != turn
+						|| board.getCharValue(move.Row, move.Col) != '+')
+					return forfeit(result, board, i, "illegal move "
+							+((move == null) ? "null" : move.Row+","+move.Col));
+				int captured = board.setBoard(move);
+
+				turn = other(turn);
+				if (colours[turn].opponentMove(move) < 0)
+					return forfeit(result, board, index[turn],
+							"rejected "+move.Row+","+move.Col);
+				// after a capture the same player moves again
+				if (captured > 0)
+					turn = other(turn);
+			}
+		} catch (RuntimeException e) {
+			return forfeit(result, board, index[turn], e.toString());
+		}
+
+		result.margin = (result.firstColour == BLUE)
+				? board.blueHex - board.redHex : board.redHex - board.blueHex;
+		return result;
+	}
+
+	/**
+	 * End a game by the forfeit of one player, giving every cell
+	 * not captured yet to the other
+	 * @param player FIRST or SECOND, the player forfeiting
+	 * @return the result of the game
+	 */
+	private GameResult forfeit(GameResult result, Board board, int player,
+			String reason){
+		int first = (result.firstColour == BLUE)
+				? board.blueHex - board.redHex : board.redHex - board.blueHex;
+		result.margin = (player == FIRST) ? first - board.getFreeCells()
+				: first + board.getFreeCells();
+		// a forfeit is never a draw
+		if (result.margin == 0)
+			result.margin = (player == FIRST) ? -1 : 1;
+		result.forfeit = player;
+		result.reason = reason;
+		return result;
+	}
+
+	/**
+	 * Add the result of a game to the totals, printing them every
+	 * REPORT_EVERY games
+	 * @param result the result of the game
+	 */
+	public synchronized void record(GameResult result){
+		add(result);
+		if (output != null && games % REPORT_EVERY == 0)
+			report(output);
+	}
+
+	/**
+	 * Add the result of a game to the totals, which record() prints
+	 * once all of them have been brought up to date
+	 * @param result the result of the game
+	 */
+	protected synchronized void add(GameResult result){
+		games++;
+		if (result.margin > 0)
+			wins++;
+		else if (result.margin < 0)
+			losses++;
+		else
+			draws++;
+		if (result.forfeit >= 0) {
+			forfeits[result.forfeit]++;
+			if (output != null)
+				output.println("game "+result.game+": "+names[result.forfeit]
+						+" forfeits, "+result.reason);
+		}
+		marginSum += result.margin;
+		marginSquares += (long) result.margin*result.margin;
+		for (int i = FIRST; i <= SECOND; i++) {
+			moves[i] += result.moves[i];
+			nanos[i] += result.nanos[i];
+			maxNanos[i] = Math.max(maxNanos[i], result.maxNanos[i]);
+		}
+	}
+
+	/** Return the score of the first player, a win counting 1
+	 *  and a draw 1/2, over the games so far */
+	public synchronized double getScore(){
+		return (games == 0) ? 0.5 : (wins + 0.5*draws) / games;
+	}
+
+	/** Return the mean margin of cells of the first player */
+	public synchronized double getMeanMargin(){
+		return (games == 0) ? 0 : (double) marginSum / games;
+	}
+
+	/** Print the totals of the games so far
+	 * @param output where to print them
+	 */
+	public synchronized void report(PrintStream output){
+		double mean = getMeanMargin();
+		double variance = (games == 0) ? 0
+				: (double) marginSquares / games - mean*mean;
+		output.printf("%d games: %s +%d =%d -%d (%.1f%%), margin %+.2f sd %.2f%n",
+				games, names[FIRST], wins, draws, losses, 100*getScore(),
+				mean, Math.sqrt(Math.max(0, variance)));
+		for (int i = FIRST; i <= SECOND; i++) {
+			output.printf("  %s: %d moves, %.1fms per move, longest %.1fms,"
+					+" %d forfeits%n", names[i], moves[i],
+					(moves[i] == 0) ? 0 : nanos[i] / 1e6 / moves[i],
+					maxNanos[i] / 1e6, forfeits[i]);
+		}
+	}
+
+	/** Return the other colour */
+	private static int other(int p){
+		return (p == BLUE) ? RED : BLUE;
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("usage: java Tournament <n> <first player class>"
+					+" <second player class> [games] [threads]");
+			System.exit(1);
+		}
+		int n = Integer.parseInt(args[0]);
+		int games = (args.length > 3) ? Integer.parseInt(args[3]) : GAMES;
+		int threads = (args.length > 4) ? Integer.parseInt(args[4])
+				: Runtime.getRuntime().availableProcessors();
+
+		Tournament tournament = new Tournament(n, forClass(args[1]),
+				forClass(args[2]), args[1], args[2]);
+		long start = System.nanoTime();
+		tournament.play(games, threads);
+		System.out.println("played in "+(System.nanoTime()-start)/1000000+"ms");
+	}
+}
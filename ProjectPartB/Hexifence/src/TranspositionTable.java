@@ -0,0 +1,191 @@
+/** Fixed-size transposition table for the minimax search
+ *
+ * Each entry is two longs: a packed data word holding the score,
+ * the depth searched, the kind of bound, the search age and the best move,
+ * and the full hash of the position XORed with the data word.
+ * Entries come in buckets of two: the first slot keeps the deepest
+ * result unless it is left over from an earlier search, and the
+ * second slot always takes the newest result.
+ *
+ * The table can be shared by several searching threads without locks.
+ * Each long is read and written atomically, and an entry only verifies
+ * on probe if its two longs were written together, so an entry torn
+ * by two threads storing at once is simply missed.
+ *
+ * A PositionCache can be attached to keep results from game to game:
+ * positions missing from the table are then looked up in the cache,
+ * and results searched deeply enough are also stored in it.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class TranspositionTable {
+
+	// Kinds of bound stored with a score
+	public static final int EXACT = 1; // score is the minimax value
+	public static final int LOWER = 2; // minimax value >= score
+	public static final int UPPER = 3; // minimax value <= score
+
+	// Bytes taken by one entry (key and data)
+	public static final int ENTRY_BYTES = 16;
+
+	// hash XOR data at 2*slot, packed score, depth, bound, age
+	// and move at 2*slot+1
+	private final AtomicLongArray entries;
+	private final int mask; // bucket mask, the number of buckets minus 1
+	private volatile int age = 0; // age of the current search, 0 to 255
+
+	// cache of results from earlier games, null if there is none
+	private PositionCache cache;
+	private long cacheKey; // mixed into hashes used in the cache
+	private int cacheDepth; // least depth of a result to store in the cache
+
+
+	/** constructor
+	 * @param megabytes memory to use, rounded down to a power of two entries
+	 */
+	public TranspositionTable(int megabytes){
+		long entries = Math.max(2L, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+		// largest power of two not above the requested number of entries
+		int slots = (int) Long.highestOneBit(Math.min(entries, 1L << 29));
+		this.entries = new AtomicLongArray(slots*2);
+		mask = slots/2 - 1;
+	}
+
+	/** Attach a cache of results from earlier games
+	 * @param cache the cache
+	 * @param key mixed into the hash of every position in the cache,
+	 * 		  so that different kinds of table can share it
+	 * @param depth least depth of a result to store in the cache
+	 */
+	public void attachCache(PositionCache cache, long key, int depth){
+		this.cache = cache;
+		this.cacheKey = key;
+		this.cacheDepth = depth;
+	}
+
+	/** Start a new search, so entries of earlier searches
+	 *  can be replaced first
+	 */
+	public void newSearch(){
+		age = (age+1) & 0xFF;
+	}
+
+	/** Remove every entry from the table
+	 */
+	public void clear(){
+		for(int k = 0; k<entries.length(); k++)
+			entries.setOpaque(k, 0);
+	}
+
+	/** Look up the position with the given hash
+	 * @return the packed data word of the entry or 0 if there is none
+	 */
+	public long probe(long hash){
+		int slot = (int) (hash & mask) * 2;
+		long data = data(slot);
+		if(data != 0 && key(slot, data) == hash)
+			return data;
+		data = data(slot+1);
+		if(data != 0 && key(slot+1, data) == hash)
+			return data;
+		return (cache != null) ? probeCache(hash) : 0;
+	}
+
+	/** Look up the position with the given hash in the cache,
+	 *  keeping the entry in the table if there is one
+	 * @return the packed data word of the entry or 0 if there is none
+	 */
+	private long probeCache(long hash){
+		long data = cache.probe(hash ^ cacheKey);
+		if(data == 0)
+			return 0;
+		long entry = pack(score(data), depth(data), bound(data), age, move(data));
+		write((int) (hash & mask) * 2 + 1, hash, entry);
+		return entry;
+	}
+
+	/** Store the result of searching the position with the given hash
+	 * @param hash hash of the position
+	 * @param score score found by the search
+	 * @param depth depth searched below the position
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param move edge index of the best move or -1 if there is none
+	 */
+	public void store(long hash, int score, int depth, int bound, int move){
+		long entry = pack(score, depth, bound, age, move);
+		int slot = (int) (hash & mask) * 2;
+
+		// the deep slot is replaced by the same position, a result at
+		// least as deep, or anything once it is from an earlier search
+		long data = data(slot);
+		if(data == 0 || key(slot, data) == hash
+				|| depth >= depth(data) || age(data) != age)
+			write(slot, hash, entry);
+		else
+			write(slot+1, hash, entry);
+
+		if(cache != null && depth >= cacheDepth)
+			cache.store(hash ^ cacheKey, score, depth, bound, move);
+	}
+
+	/** Return the data word of a slot */
+	private long data(int slot){
+		return entries.getOpaque(2*slot+1);
+	}
+
+	/** Return the hash of a slot whose data word was read as data,
+	 *  which is only right if the hash word was written with that data
+	 *  word; reading the data word again could pair the hash of an entry
+	 *  written since with the data returned */
+	private long key(int slot, long data){
+		return entries.getOpaque(2*slot) ^ data;
+	}
+
+	/** Write an entry to a slot */
+	private void write(int slot, long hash, long data){
+		entries.setOpaque(2*slot, hash ^ data);
+		entries.setOpaque(2*slot+1, data);
+	}
+
+	/** Pack an entry into one long
+	 *  bits 0-31 score, 32-39 depth, 40-41 bound,
+	 *  42-49 age, 50-59 move+1
+	 */
+	static long pack(int score, int depth, int bound, int age, int move){
+		return (score & 0xFFFFFFFFL)
+				| (long) (depth & 0xFF) << 32
+				| (long) (bound & 0x3) << 40
+				| (long) (age & 0xFF) << 42
+				| (long) ((move+1) & 0x3FF) << 50;
+	}
+
+	/** Return the score of a packed entry */
+	public static int score(long entry){
+		return (int) entry;
+	}
+
+	/** Return the depth of a packed entry */
+	public static int depth(long entry){
+		return (int) (entry >>> 32) & 0xFF;
+	}
+
+	/** Return the bound of a packed entry (EXACT, LOWER or UPPER) */
+	public static int bound(long entry){
+		return (int) (entry >>> 40) & 0x3;
+	}
+
+	/** Return the age of a packed entry */
+	public static int age(long entry){
+		return (int) (entry >>> 42) & 0xFF;
+	}
+
+	/** Return the best move of a packed entry, -1 if there is none */
+	public static int move(long entry){
+		return ((int) (entry >>> 50) & 0x3FF) - 1;
+	}
+}
@@ -0,0 +1,123 @@
+/** Weights class holding the score multipliers of the evaluation function
+ * of SongtNmirpuri, so that players with different weights can play in
+ * the same program (see GeneticTuner).
+ *
+ * A new Weights holds the defaults, the constants of SongtNmirpuri.
+ * Weights are written as name=value pairs separated by commas, e.g.
+ *   myStreak=2,theirStreak=2,myCapture=1,theirCapture=3,sizeDivision=11
+ * which is what toString() gives and parse() reads; a player is given
+ * weights other than the defaults with -Dhexifence.weights=<weights>.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+
+public class Weights {
+
+	// Names of the weights, in the order of toArray()
+	public static final String[] NAMES = {"safestMove", "myStreak",
+			"theirStreak", "myCapture", "theirCapture", "sizeDivision"};
+	// Smallest and largest value of each weight
+	public static final int[] MIN = {0, 0, 0, 0, 0, 1};
+	public static final int[] MAX = {20, 20, 20, 20, 20, 40};
+
+	// score of a safe move, not used by the evaluation function at present
+	public int safestMove = SongtNmirpuri.SAFEST_MOVE;
+	public int myStreak = SongtNmirpuri.MY_STREAK;
+	public int theirStreak = SongtNmirpuri.THEIR_STREAK;
+	public int myCapture = SongtNmirpuri.MY_CAPTURE;
+	public int theirCapture = SongtNmirpuri.THEIR_CAPTURE;
+	// safe moves are played without searching while more than
+	// size*size/sizeDivision edges are open
+	public int sizeDivision = SongtNmirpuri.SIZE_DIVISION;
+
+
+	/** constructor, with the default weights
+	 */
+	public Weights(){
+	}
+
+	/** constructor
+	 * @param values the weights in the order of NAMES, kept within
+	 * 		  MIN and MAX
+	 */
+	public Weights(int[] values){
+		safestMove = clamp(0, values[0]);
+		myStreak = clamp(1, values[1]);
+		theirStreak = clamp(2, values[2]);
+		myCapture = clamp(3, values[3]);
+		theirCapture = clamp(4, values[4]);
+		sizeDivision = clamp(5, values[5]);
+	}
+
+	/** Return the weights in the order of NAMES */
+	public int[] toArray(){
+		return new int[] {safestMove, myStreak, theirStreak,
+				myCapture, theirCapture, sizeDivision};
+	}
+
+	/**
+	 * Read weights written by toString(), any weight not given
+	 * keeping its default
+	 * @param text name=value pairs separated by commas
+	 * @throws IllegalArgumentException if a name or value is not right
+	 */
+	public static Weights parse(String text){
+		int[] values = new Weights().toArray();
+		for (String pair : text.split(",")) {
+			pair = pair.trim();
+			if (pair.isEmpty())
+				continue;
+			int equals = pair.indexOf('=');
+			int k = (equals < 0) ? -1
+					: Arrays.asList(NAMES).indexOf(pair.substring(0, equals).trim());
+			if (k < 0)
+				throw new IllegalArgumentException("not a weight: "+pair);
+			values[k] = Integer.parseInt(pair.substring(equals+1).trim());
+		}
+		return new Weights(values);
+	}
+
+	/** Return the value kept within MIN and MAX of the k-th weight */
+	private static int clamp(int k, int value){
+		return Math.max(MIN[k], Math.min(MAX[k], value));
+	}
+
+	@Override
+	public String toString(){
+		int[] values = toArray();
+		StringBuilder text = new StringBuilder();
+		for (int k = 0; k < NAMES.length; k++) {
+			if (k > 0)
+				text.append(',');
+			text.append(NAMES[k]).append('=').append(values[k]);
+		}
+		return text.toString();
+	}
+
+	@Override
+	public boolean equals(Object other){
+		return other instanceof Weights
+				&& Arrays.equals(toArray(), ((Weights) other).toArray());
+	}
+
+	@Override
+	public int hashCode(){
+		return Arrays.hashCode(toArray());
+	}
+
+	/** Return a 64-bit hash of the weights (FNV-1a over their values),
+	 *  the same for equal weights in every run, which a PositionCache
+	 *  keeps to tell whether its scores were found with these weights */
+	public long fingerprint(){
+		long hash = 0xCBF29CE484222325L;
+		for (int value : toArray()) {
+			hash ^= value;
+			hash *= 0x100000001B3L;
+		}
+		return hash;
+	}
+}
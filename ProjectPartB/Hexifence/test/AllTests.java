@@ -0,0 +1,41 @@
+/** AllTests class running every regression test of the player and its
+ * tools, stopping at the first to fail with its message and exit code 1.
+ *
+ * The tests are plain classes with a main() in the default package like
+ * the player, so they build with nothing but javac:
+ *   javac -d bin src/aiproj/hexifence/*.java src/*.java test/*.java
+ *   java -cp bin AllTests
+ * from ProjectPartB/Hexifence. Each test class can be run on its own too.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+public class AllTests {
+
+	/** A test class to run */
+	private interface Test {
+		void run(String[] args) throws Exception;
+	}
+
+	public static void main(String[] args){
+		String[] names = {"BoardTest", "SymmetryTest", "TranspositionTableTest",
+				"PositionCacheTest", "OpeningBookTest", "PerftTest"};
+		Test[] tests = {BoardTest::main, SymmetryTest::main, TranspositionTableTest::main,
+				PositionCacheTest::main, OpeningBookTest::main, PerftTest::main};
+		for (int k = 0; k < tests.length; k++) {
+			long start = System.nanoTime();
+			try {
+				tests[k].run(new String[0]);
+			} catch (Throwable e) {
+				System.out.println(names[k]+" FAILED: "+e);
+				e.printStackTrace();
+				System.exit(1);
+			}
+			System.out.printf("%s passed in %.0fms%n", names[k],
+					(System.nanoTime() - start) / 1e6);
+		}
+		System.out.println("all "+tests.length+" tests passed");
+	}
+}
@@ -0,0 +1,216 @@
+/** BoardTest class checking that the incremental state of Board is right
+ * however moves are made and undone.
+ *
+ * Random walks of moves and undos, with the players taking turns and
+ * moving again after a capture, are checked at every step against
+ * - a board with the same moves made from the empty board, which has
+ *   never undone anything, and
+ * - the open edges of each hexagon and the capture value of each edge
+ *   counted from scratch from the open edges, and
+ * - the regions, two-edge cells and chains of the board, found from
+ *   scratch by a search over the open edges, once the board has been
+ *   asked for them (from the start of even walks and from a third of the
+ *   way through odd ones, as the board only keeps them from then on), on
+ *   the board and on copies of it.
+ * Undoing every move has to give the empty board back, and undoing
+ * anything but the last move has to be refused.
+ *
+ * usage: java BoardTest
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.util.*;
+import aiproj.hexifence.*;
+
+public class BoardTest implements Piece {
+
+	// Random walks on each size of board, and steps in each
+	public static final int WALKS = 200;
+	public static final int STEPS = 150;
+
+
+	public static void main(String[] args){
+		for (int n = 2; n <= 3; n++) {
+			for (int seed = 0; seed < WALKS; seed++)
+				walk(n, seed);
+			refusesUndoOfEarlierMove(n);
+		}
+	}
+
+	/** Make and undo random moves, checking the board after each */
+	private static void walk(int n, long seed){
+		Random random = new Random(seed);
+		Board board = new Board(n);
+		String empty = state(board);
+		int[] edges = new int[HexGeometry.of(n).numEdges];
+		Deque<int[]> made = new ArrayDeque<int[]>(); // {edge, player, turn before}
+		int turn = BLUE;
+		boolean regions = (seed % 2 == 0);
+		Board spare = new Board(n);
+		spare.getChains();
+
+		for (int step = 0; step < STEPS; step++) {
+			if (board.getPossibleMoves() > 0
+					&& (made.isEmpty() || random.nextInt(3) > 0)) {
+				int count = board.generatePosbMoves(edges, false);
+				int e = edges[random.nextInt(count)];
+				made.push(new int[] {e, turn, turn});
+				// after a capture the same player moves again
+				if (board.setBoard(e, turn) == 0)
+					turn = (turn == BLUE) ? RED : BLUE;
+			} else if (!made.isEmpty()) {
+				int[] move = made.pop();
+				board.undoMove(move[0]);
+				turn = move[2];
+			}
+			String where = "n="+n+" seed "+seed+" step "+step;
+			Check.equal(state(replay(n, made)), state(board), where+", board after undos");
+			checkCounts(board, where);
+			if (step == STEPS/3)
+				regions = true;
+			if (regions)
+				checkRegions(board, where);
+			if (step % 10 == 0) {
+				// a copy keeps the regions of the board if it has them,
+				// and works them out afresh if it had some of its own
+				Board copy = new Board(n);
+				copy.copyFrom(board);
+				checkRegions(copy, where+", copy");
+				spare.copyFrom(board);
+				checkRegions(spare, where+", copy over a board with regions");
+			}
+		}
+
+		while (!made.isEmpty())
+			board.undoMove(made.pop()[0]);
+		Check.equal(empty, state(board), "n="+n+" seed "+seed+", board after undoing every move");
+	}
+
+	/** Return a new board with the given moves made, the last one pushed
+	 *  first, with nothing ever undone */
+	private static Board replay(int n, Deque<int[]> made){
+		Board board = new Board(n);
+		Iterator<int[]> moves = made.descendingIterator();
+		while (moves.hasNext()) {
+			int[] move = moves.next();
+			board.setBoard(move[0], move[1]);
+		}
+		return board;
+	}
+
+	/** Check the open edges of each hexagon, the capture value of each
+	 *  edge and the capture counters against counts from scratch */
+	private static void checkCounts(Board board, String where){
+		HexGeometry geometry = HexGeometry.of(board.n);
+		int[] hexOpen = new int[geometry.numHexes];
+		for (int h = 0; h < geometry.numHexes; h++) {
+			for (int e : geometry.hexEdgeList[h])
+				if (isOpen(board, e))
+					hexOpen[h]++;
+			Check.equal(hexOpen[h], board.getHexOpen(h), where+", open edges of hexagon "+h);
+		}
+		int max = 0;
+		int open = 0;
+		for (int e = 0; e < geometry.numEdges; e++) {
+			int value = 0;
+			if (isOpen(board, e)) {
+				open++;
+				for (int h : geometry.edgeHexes[e])
+					if (hexOpen[h] == 1)
+						value++;
+			}
+			max = Math.max(max, value);
+			Check.equal(value, board.getCaptureValue(e), where+", capture value of edge "+e);
+		}
+		Check.equal(open, board.getPossibleMoves(), where+", possible moves");
+		Check.equal(max, board.getMaxByOneMove(), where+", most cells captured by one move");
+		Check.equal(geometry.numHexes - board.blueHex - board.redHex,
+				board.getFreeCells(), where+", free cells");
+	}
+
+	/** Check the regions, two-edge cells and chains of the board against
+	 *  a search over the open edges */
+	private static void checkRegions(Board board, String where){
+		HexGeometry geometry = HexGeometry.of(board.n);
+		int[] region = new int[geometry.numHexes];
+		Arrays.fill(region, -1);
+		int[] sizes = new int[geometry.numHexes];
+		for (int h = 0; h < geometry.numHexes; h++) {
+			if (region[h] >= 0)
+				continue;
+			Deque<Integer> todo = new ArrayDeque<Integer>();
+			region[h] = h;
+			todo.push(h);
+			while (!todo.isEmpty()) {
+				int g = todo.pop();
+				sizes[h]++;
+				for (int e : geometry.hexEdgeList[g]) {
+					int[] hexes = geometry.edgeHexes[e];
+					int other = (hexes[0] == g) ? hexes[hexes.length-1] : hexes[0];
+					if (isOpen(board, e) && region[other] < 0) {
+						region[other] = h;
+						todo.push(other);
+					}
+				}
+			}
+		}
+		int twoEdge = 0;
+		int links = 0;
+		for (int h = 0; h < geometry.numHexes; h++) {
+			Check.equal(sizes[region[h]], board.getRegionSize(h), where+", region of hexagon "+h);
+			if (board.getHexOpen(h) == 2)
+				twoEdge++;
+		}
+		for (int e = 0; e < geometry.numEdges; e++) {
+			int[] hexes = geometry.edgeHexes[e];
+			if (hexes.length == 2 && isOpen(board, e) && board.getHexOpen(hexes[0]) == 2
+					&& board.getHexOpen(hexes[1]) == 2)
+				links++;
+		}
+		Check.equal(twoEdge, board.getTwoEdgeCells(), where+", two-edge cells");
+		Check.equal(twoEdge - links, board.getChains(), where+", chains");
+	}
+
+	/** Undoing a move which is not the last one made must be refused */
+	private static void refusesUndoOfEarlierMove(int n){
+		Board board = new Board(n);
+		board.setBoard(0, BLUE);
+		board.setBoard(1, RED);
+		try {
+			board.undoMove(0);
+		} catch (IllegalStateException e) {
+			return;
+		}
+		throw new AssertionError("n="+n+", undoing an earlier move was not refused");
+	}
+
+	/** Return true if the edge e of the board is open */
+	private static boolean isOpen(Board board, int e){
+		return (board.getOpenEdges(e >>> 6) & (1L << e)) != 0;
+	}
+
+	/** Return everything about a board which can be seen from outside */
+	static String state(Board board){
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		board.printBoard(new PrintStream(text));
+		StringBuilder state = new StringBuilder(text.toString());
+		state.append("blue ").append(board.blueHex).append(" red ").append(board.redHex)
+				.append(" moves ").append(board.getPossibleMoves())
+				.append(" max ").append(board.getMaxByOneMove())
+				.append(" captures ").append(board.getAvailableCaptures()).append('\n');
+		for (int g = 0; g < HexGeometry.SYMMETRIES; g++)
+			state.append(Long.toHexString(board.getHash(g))).append(' ')
+					.append(Long.toHexString(board.getEdgeHash(g))).append('\n');
+		HexGeometry geometry = HexGeometry.of(board.n);
+		for (int e = 0; e < geometry.numEdges; e++)
+			state.append(board.getCaptureValue(e));
+		state.append('\n');
+		for (int h = 0; h < geometry.numHexes; h++)
+			state.append(board.getHexOpen(h));
+		return state.toString();
+	}
+}
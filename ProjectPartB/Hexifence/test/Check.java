@@ -0,0 +1,42 @@
+/** Check class holding the checks made by the regression tests, each of
+ * which throws an AssertionError with a message saying what went wrong.
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+public class Check {
+
+	/**
+	 * Check that something is true
+	 * @param condition the thing to be true
+	 * @param what what it means, for the message if it is not
+	 */
+	public static void that(boolean condition, String what){
+		if (!condition)
+			throw new AssertionError(what);
+	}
+
+	/**
+	 * Check that a value is the one expected
+	 * @param expected the value expected
+	 * @param actual the value found
+	 * @param what what the value is, for the message if it is wrong
+	 */
+	public static void equal(long expected, long actual, String what){
+		if (expected != actual)
+			throw new AssertionError(what+": expected "+expected+", got "+actual);
+	}
+
+	/**
+	 * Check that a value is the one expected
+	 * @param expected the value expected
+	 * @param actual the value found
+	 * @param what what the value is, for the message if it is wrong
+	 */
+	public static void equal(Object expected, Object actual, String what){
+		if (expected == null ? actual != null : !expected.equals(actual))
+			throw new AssertionError(what+": expected "+expected+", got "+actual);
+	}
+}
@@ -0,0 +1,171 @@
+/** OpeningBookTest class checking that a book written by OpeningBook.main()
+ * reads back with a move for every position it was built from, under
+ * every symmetry of the position, and that nothing else is answered.
+ *
+ * usage: java OpeningBookTest
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.util.*;
+import aiproj.hexifence.*;
+
+public class OpeningBookTest implements Piece {
+
+	// Book built: n, moves from the empty board and time per position
+	public static final int N = 2;
+	public static final int MOVES = 1;
+	public static final int MOVE_MILLIS = 20;
+
+
+	public static void main(String[] args) throws Exception {
+		File file = File.createTempFile("book", ".bin");
+		file.deleteOnExit();
+		OpeningBook.main(new String[] {file.getPath(), ""+N, ""+MOVES, ""+MOVE_MILLIS, "1"});
+		checkFile(file);
+		OpeningBook book = OpeningBook.open(file.getPath());
+		Check.equal(N, book.n, "n of the book");
+		answersEveryPosition(book);
+		answersNothingElse(book);
+		refusesOtherFiles(file);
+		refusesTakenEdges();
+	}
+
+	/** The file holds the header and the entries sorted by key */
+	private static void checkFile(File file) throws IOException {
+		int positions = OpeningBook.positions(N, MOVES).size();
+		Check.equal(OpeningBook.HEADER_BYTES + (long) positions*OpeningBook.ENTRY_BYTES,
+				file.length(), "length of the book");
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file)))) {
+			Check.equal(OpeningBook.MAGIC, in.readInt(), "magic of the book");
+			Check.equal(N, in.readInt(), "n of the book");
+			Check.equal(positions, in.readInt(), "positions in the book");
+			long last = Long.MIN_VALUE;
+			int edges = HexGeometry.of(N).numEdges;
+			for (int k = 0; k < positions; k++) {
+				long key = in.readLong();
+				Check.that(k == 0 || key > last, "entry "+k+" out of order");
+				last = key;
+				int edge = in.readShort();
+				Check.that(edge >= 0 && edge < edges, "entry "+k+" has edge "+edge);
+				in.readShort();
+			}
+		}
+	}
+
+	/** Every position the book was built from, turned by any symmetry,
+	 *  gets an open edge and the same score, and the edge is the same
+	 *  move whichever way the position is turned */
+	private static void answersEveryPosition(OpeningBook book){
+		HexGeometry geometry = HexGeometry.of(N);
+		for (int[] taken : OpeningBook.positions(N, MOVES)) {
+			long after = -1;
+			int score = 0;
+			for (int g = 0; g < HexGeometry.SYMMETRIES; g++) {
+				Board board = new Board(N);
+				for (int m = 0; m < taken.length; m++)
+					board.setBoard(geometry.symmetricEdge(g, taken[m]), mover(m));
+				String where = "position "+Arrays.toString(taken)+" symmetry "+g;
+				int e = book.bestEdge(board);
+				Check.that(e >= 0 && (board.getOpenEdges(e >>> 6) & (1L << e)) != 0,
+						where+", edge "+e);
+				if (g == 0)
+					score = book.score(board);
+				Check.equal(score, book.score(board), where+", score");
+				int[] entry = book.lookup(board);
+				Check.equal(e, entry[0], where+", edge looked up");
+				Check.equal(score, entry[1], where+", score looked up");
+
+				board.setBoard(e, mover(taken.length));
+				long hash = board.getHash(board.getCanonicalSymmetry());
+				if (g == 0)
+					after = hash;
+				Check.equal(after, hash, where+", position after the move");
+			}
+		}
+	}
+
+	/** Positions deeper than the book or with captured cells are not in it */
+	private static void answersNothingElse(OpeningBook book){
+		Random random = new Random(1);
+		int[] edges = new int[HexGeometry.of(N).numEdges];
+		for (int game = 0; game < 20; game++) {
+			Board board = new Board(N);
+			int turn = BLUE;
+			for (int m = 0; board.getPossibleMoves() > 0; m++) {
+				int count = board.generatePosbMoves(edges, false);
+				if (board.setBoard(edges[random.nextInt(count)], turn) == 0)
+					turn = (turn == BLUE) ? RED : BLUE;
+				if (m >= MOVES) {
+					String where = "game "+game+" move "+m;
+					Check.equal(-1, book.bestEdge(board), where+", edge");
+					Check.equal(0, book.score(board), where+", score");
+					Check.equal(null, book.lookup(board), where+", entry");
+				}
+			}
+		}
+	}
+
+	/** Files which are not books are refused */
+	private static void refusesOtherFiles(File book) throws IOException {
+		File file = File.createTempFile("notbook", ".bin");
+		file.deleteOnExit();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write("not an opening book".getBytes("US-ASCII"));
+		}
+		refuses(file, "a file of text");
+
+		// a book cut short
+		byte[] bytes = new byte[(int) book.length() - 1];
+		try (DataInputStream in = new DataInputStream(new FileInputStream(book))) {
+			in.readFully(bytes);
+		}
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(bytes);
+		}
+		refuses(file, "a book cut short");
+	}
+
+	/** Check that a file is refused by OpeningBook.open() */
+	private static void refuses(File file, String what){
+		try {
+			OpeningBook.open(file.getPath());
+		} catch (IOException e) {
+			return;
+		}
+		throw new AssertionError(what+" was opened as a book");
+	}
+
+	/** An entry whose edge is already taken on the board, as it would be
+	 *  for another position with the same hash, is not answered */
+	private static void refusesTakenEdges() throws IOException {
+		Board board = new Board(N);
+		board.setBoard(0, BLUE);
+		int symmetry = board.getCanonicalSymmetry();
+		int taken = HexGeometry.of(N).symmetricEdge(symmetry, 0);
+		File file = File.createTempFile("book", ".bin");
+		file.deleteOnExit();
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(OpeningBook.MAGIC);
+			out.writeInt(N);
+			out.writeInt(1);
+			out.writeLong(board.getHash(symmetry));
+			out.writeShort(taken);
+			out.writeShort(5);
+		}
+		OpeningBook book = OpeningBook.open(file.getPath());
+		Check.equal(-1, book.bestEdge(board), "answer with a taken edge");
+		Check.equal(0, book.score(board), "score of an answer with a taken edge");
+		Check.equal(null, book.lookup(board), "entry of an answer with a taken edge");
+	}
+
+	/** Return the player to move after the given number of moves
+	 *  which captured nothing */
+	private static int mover(int moves){
+		return (moves % 2 == 0) ? BLUE : RED;
+	}
+}
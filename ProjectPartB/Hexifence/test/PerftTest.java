@@ -0,0 +1,162 @@
+/** PerftTest class checking the number of sequences of moves Perft counts
+ * from the empty board, and that the counts of each first move printed
+ * in divide mode add up to the counts of the whole depth, and that a
+ * depth below 1 is refused rather than counted to the end of the game.
+ *
+ * usage: java PerftTest
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.*;
+import aiproj.hexifence.*;
+
+public class PerftTest implements Piece {
+
+	// Sequences of 1, 2, 3 and 4 moves from the empty n=2 board
+	public static final long[] LEAVES = {30, 870, 24360, 657720};
+	// Depth counted in divide mode, and moves taken before it
+	public static final int DIVIDE_DEPTH = 4;
+	public static final int TAKEN = 18;
+
+	// Counts of a line printed by Perft
+	private static final Pattern COUNTS = Pattern.compile("(\\d+) leaves, (\\d+) captures,"
+			+" (\\d+) doubles, blue (\\d+) red (\\d+), checksum ([0-9a-f]+)");
+
+
+	public static void main(String[] args) throws IOException {
+		countsEmptyBoard();
+		for (int seed = 0; seed < 3; seed++)
+			divideAddsUp(seed);
+		refusesDepthBelowOne();
+	}
+
+	/** The sequences of moves from the empty board are 30*29*...,
+	 *  none of them capture and the board is left as it was */
+	private static void countsEmptyBoard(){
+		Board board = new Board(2);
+		String empty = BoardTest.state(board);
+		Perft perft = new Perft(board);
+		long moves = 0;
+		for (int d = 1; d <= LEAVES.length; d++) {
+			perft.count(d, BLUE);
+			moves += LEAVES[d-1];
+			Check.equal(LEAVES[d-1], perft.leaves, "leaves at depth "+d);
+			Check.equal(moves, perft.moves, "moves made to depth "+d);
+			Check.equal(0, perft.captures, "captures at depth "+d);
+			Check.equal(0, perft.blue + perft.red, "cells captured at depth "+d);
+			Check.equal(empty, BoardTest.state(board), "board after depth "+d);
+		}
+
+		// any open edge can be taken, on every size of board
+		board = new Board(3);
+		perft = new Perft(board);
+		int edges = HexGeometry.of(3).numEdges;
+		perft.count(3, BLUE);
+		Check.equal((long) edges * (edges-1) * (edges-2), perft.leaves, "n=3 leaves at depth 3");
+	}
+
+	/** The counts printed by Perft for each first move of a position with
+	 *  captures add up to the total it prints and to count() of the depth */
+	private static void divideAddsUp(long seed) throws IOException {
+		Board board = position(seed);
+		File file = File.createTempFile("perft", ".txt");
+		file.deleteOnExit();
+		try (PrintStream out = new PrintStream(new FileOutputStream(file))) {
+			out.println(board.n);
+			board.printBoard(out);
+		}
+
+		String[] lines = run(new String[] {"2", ""+DIVIDE_DEPTH, "divide", file.getPath()});
+		Check.equal(board.getPossibleMoves() + 1, lines.length, "lines printed by divide");
+		long[] sum = new long[6];
+		for (int k = 0; k < lines.length - 1; k++) {
+			Matcher counts = COUNTS.matcher(lines[k]);
+			Check.that(counts.find(), "counts of a first move: "+lines[k]);
+			for (int c = 0; c < 5; c++)
+				sum[c] += Long.parseLong(counts.group(c+1));
+			sum[5] += Long.parseUnsignedLong(counts.group(6), 16);
+		}
+
+		Perft perft = new Perft(board);
+		perft.count(DIVIDE_DEPTH, BLUE);
+		String where = "seed "+seed;
+		Check.that(perft.captures > 0, where+", a position without captures");
+		Check.equal("total "+perft.leaves+" leaves, "+perft.captures+" captures, "
+				+perft.doubles+" doubles", lines[lines.length - 1], where+", total of divide");
+		Check.equal(perft.leaves, sum[0], where+", leaves of the first moves");
+		Check.equal(perft.captures, sum[1], where+", captures of the first moves");
+		Check.equal(perft.doubles, sum[2], where+", doubles of the first moves");
+		Check.equal(perft.blue, sum[3], where+", blue cells of the first moves");
+		Check.equal(perft.red, sum[4], where+", red cells of the first moves");
+		Check.equal(perft.checksum, sum[5], where+", checksum of the first moves");
+	}
+
+	/** count() of a depth below 1 counts the board itself, and Perft run
+	 *  with one, plain or in divide mode, stops with an error at once */
+	private static void refusesDepthBelowOne() throws IOException {
+		Board board = new Board(3);
+		Perft perft = new Perft(board);
+		for (int depth = 0; depth >= -1; depth--) {
+			perft.count(depth, BLUE);
+			Check.equal(1, perft.leaves, "leaves at depth "+depth);
+			Check.equal(0, perft.moves, "moves made to depth "+depth);
+		}
+
+		String java = System.getProperty("java.home")+File.separator+"bin"
+				+File.separator+"java";
+		for (String[] args : new String[][] {{"3", "0"}, {"3", "0", "divide"}, {"3", "-2"}}) {
+			List<String> command = new ArrayList<String>(Arrays.asList(java, "-cp",
+					System.getProperty("java.class.path"), "Perft"));
+			command.addAll(Arrays.asList(args));
+			Process child = new ProcessBuilder(command).redirectErrorStream(true).start();
+			String what = "java Perft "+String.join(" ", args);
+			try {
+				Check.that(child.waitFor(10, TimeUnit.SECONDS),
+						what+" still running after 10s");
+				Check.equal(1, child.exitValue(), "exit code of "+what);
+			} catch (InterruptedException e) {
+				throw new AssertionError("interrupted", e);
+			} finally {
+				child.destroyForcibly();
+			}
+		}
+	}
+
+	/** Return an n=2 board with up to TAKEN random edges taken, as long
+	 *  as that captures no cell */
+	private static Board position(long seed){
+		Random random = new Random(seed);
+		Board board = new Board(2);
+		int[] edges = new int[HexGeometry.of(2).numEdges];
+		for (int m = 0; m < TAKEN; m++) {
+			int count = board.generatePosbMoves(edges, false);
+			int safe = 0;
+			for (int k = 0; k < count; k++)
+				if (board.getCaptureValue(edges[k]) == 0)
+					edges[safe++] = edges[k];
+			if (safe == 0)
+				break;
+			board.setBoard(edges[random.nextInt(safe)], BLUE);
+		}
+		return board;
+	}
+
+	/** Run Perft.main() with the given arguments and return what it prints */
+	private static String[] run(String[] args) throws IOException {
+		PrintStream out = System.out;
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(text));
+		try {
+			Perft.main(args);
+		} finally {
+			System.setOut(out);
+		}
+		return text.toString().trim().split("\\R");
+	}
+}
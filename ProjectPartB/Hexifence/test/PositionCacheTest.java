@@ -0,0 +1,178 @@
+/** PositionCacheTest class checking that a PositionCache file keeps what
+ * is stored in it from one process to the next, counts the processes
+ * which opened it and is emptied when opened with other weights.
+ *
+ * The processes are this class run again in a child JVM with the
+ * arguments child <file> <fingerprint> <store | check | empty>, which
+ * stores ENTRIES entries in the cache, checks that they are all there
+ * or checks that none of them are.
+ *
+ * usage: java PositionCacheTest
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.util.*;
+
+public class PositionCacheTest {
+
+	// N value, size and fingerprint of the caches made
+	public static final int N = 2;
+	public static final int MEGABYTES = 1;
+	public static final long FINGERPRINT = 0x0123_4567_89AB_CDEFL;
+	// Entries stored in a cache, each in a bucket of its own
+	public static final int ENTRIES = 1000;
+
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 4 && args[0].equals("child")) {
+			child(args[1], Long.parseLong(args[2]), args[3]);
+			return;
+		}
+		inOneProcess();
+		fromProcessToProcess();
+		refusesOtherFiles();
+	}
+
+	/** A new cache has its header and size, finds what is stored in it
+	 *  and is only mapped once by a process */
+	private static void inOneProcess() throws IOException {
+		File file = newFile();
+		PositionCache cache = PositionCache.open(file.getPath(), N, MEGABYTES, FINGERPRINT);
+		Check.equal(N, cache.n, "n of the cache");
+		Check.equal(FINGERPRINT, cache.fingerprint, "fingerprint of the cache");
+		Check.equal(PositionCache.HEADER_BYTES + (long) MEGABYTES*1024*1024,
+				file.length(), "length of the cache");
+		checkHeader(file, 0, FINGERPRINT);
+
+		store(cache);
+		check(cache, 0);
+		// hashes of other buckets, and of the same buckets, were never stored
+		Random random = new Random(2);
+		for (int k = 0; k < ENTRIES; k++) {
+			Check.equal(0, cache.probe(random.nextLong()), "entry of a hash never stored");
+			Check.equal(0, cache.probe(hash(k) ^ (1L << 40)), "entry of a hash never stored");
+		}
+
+		Check.that(cache == PositionCache.open(file.getPath(), N, MEGABYTES, FINGERPRINT),
+				"cache mapped twice by one process");
+		checkHeader(file, 0, FINGERPRINT);
+		refuses(file, N, FINGERPRINT+1, "a cache in use opened with other weights");
+		refuses(file, N+1, FINGERPRINT, "a cache in use opened for another n");
+	}
+
+	/** Entries stored by one process are found by the next, each process
+	 *  is a generation, and other weights empty the cache */
+	private static void fromProcessToProcess() throws Exception {
+		File file = newFile();
+		runChild(file, FINGERPRINT, "store");
+		checkHeader(file, 0, FINGERPRINT);
+		runChild(file, FINGERPRINT, "check");
+		checkHeader(file, 1, FINGERPRINT);
+		runChild(file, FINGERPRINT, "check");
+		checkHeader(file, 2, FINGERPRINT);
+		runChild(file, FINGERPRINT+1, "empty");
+		checkHeader(file, 0, FINGERPRINT+1);
+		runChild(file, FINGERPRINT, "empty");
+		checkHeader(file, 0, FINGERPRINT);
+	}
+
+	/** Files which are not caches of positions of the same n are refused */
+	private static void refusesOtherFiles() throws IOException {
+		File file = newFile();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write("not a position cache".getBytes("US-ASCII"));
+		}
+		refuses(file, N, FINGERPRINT, "a file of text");
+
+		file = newFile();
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(PositionCache.MAGIC);
+			out.writeInt(N+1);
+		}
+		refuses(file, N, FINGERPRINT, "a cache for another n");
+		Check.equal(8, file.length(), "length of a cache refused");
+	}
+
+	/** Do what the parent asks of a child process, see the class comment */
+	private static void child(String path, long fingerprint, String what)
+			throws IOException {
+		PositionCache cache = PositionCache.open(path, N, MEGABYTES, fingerprint);
+		if (what.equals("store")) {
+			store(cache);
+		} else if (what.equals("check")) {
+			check(cache, 0);
+		} else {
+			for (int k = 0; k < ENTRIES; k++)
+				Check.equal(0, cache.probe(hash(k)), "entry "+k+" of an emptied cache");
+		}
+	}
+
+	/** Run a child process and check that it succeeds */
+	private static void runChild(File file, long fingerprint, String what)
+			throws Exception {
+		String java = System.getProperty("java.home")+File.separator+"bin"
+				+File.separator+"java";
+		Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				"PositionCacheTest", "child", file.getPath(), ""+fingerprint, what)
+				.inheritIO().start();
+		Check.equal(0, child.waitFor(), "exit code of the child asked to "+what);
+	}
+
+	/** Store ENTRIES entries, each in a bucket of its own */
+	private static void store(PositionCache cache){
+		for (int k = 0; k < ENTRIES; k++)
+			cache.store(hash(k), score(k), 1 + k % 200,
+					TranspositionTable.EXACT + k % 3, k % 91 - 1);
+	}
+
+	/** Check the entries of store(), stored in the given generation */
+	private static void check(PositionCache cache, int generation){
+		for (int k = 0; k < ENTRIES; k++)
+			Check.equal(TranspositionTable.pack(score(k), 1 + k % 200,
+					TranspositionTable.EXACT + k % 3, generation, k % 91 - 1),
+					cache.probe(hash(k)), "entry "+k);
+	}
+
+	/** Return the hash of the k-th entry, in bucket k */
+	private static long hash(int k){
+		return (k * 0x9E37_79B9_7F4A_7C15L) << 16 | k;
+	}
+
+	/** Return the score of the k-th entry */
+	private static int score(int k){
+		return (k % 2 == 0) ? k * 1000 : -k;
+	}
+
+	/** Check the header of a cache file */
+	private static void checkHeader(File file, int generation, long fingerprint)
+			throws IOException {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			Check.equal(PositionCache.MAGIC, in.readInt(), "magic of the cache");
+			Check.equal(N, in.readInt(), "n of the cache");
+			Check.equal(generation, in.readInt(), "generation of the cache");
+			Check.equal(PositionCache.VERSION, in.readInt(), "version of the cache");
+			Check.equal(fingerprint, in.readLong(), "fingerprint of the cache");
+		}
+	}
+
+	/** Check that a file is refused by PositionCache.open() */
+	private static void refuses(File file, int n, long fingerprint, String what){
+		try {
+			PositionCache.open(file.getPath(), n, MEGABYTES, fingerprint);
+		} catch (IOException e) {
+			return;
+		}
+		throw new AssertionError(what+" was opened as a position cache");
+	}
+
+	/** Return a new empty file, deleted when the test ends */
+	private static File newFile() throws IOException {
+		File file = File.createTempFile("cache", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+}
@@ -0,0 +1,117 @@
+/** SymmetryTest class checking that the hashes a Board keeps for each of
+ * the 12 symmetries of the hexagon are the hashes of the boards those
+ * symmetries give.
+ *
+ * Random games, with the players taking turns and moving again after a
+ * capture, are played again with every edge taken to where the symmetry
+ * takes it. After every move the board played that way has to
+ * - have as its own hash the hash the first board keeps for the symmetry,
+ * - have the same set of hashes and the same canonical hash, and
+ * - capture as much with each edge as the first board does with the edge
+ *   the symmetry takes to it.
+ *
+ * usage: java SymmetryTest
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.util.*;
+import aiproj.hexifence.*;
+
+public class SymmetryTest implements Piece {
+
+	// Random games played on each size of board
+	public static final int GAMES = 30;
+
+
+	public static void main(String[] args){
+		for (int n = 2; n <= 3; n++) {
+			checkTables(n);
+			for (int seed = 0; seed < GAMES; seed++)
+				play(n, seed);
+		}
+	}
+
+	/** Every symmetry takes the edges to the edges and is undone by its
+	 *  inverse, symmetry 0 leaves them as they are, and no two are the same */
+	private static void checkTables(int n){
+		HexGeometry geometry = HexGeometry.of(n);
+		Set<String> seen = new HashSet<String>();
+		for (int g = 0; g < HexGeometry.SYMMETRIES; g++) {
+			int[] edges = new int[geometry.numEdges];
+			boolean[] reached = new boolean[geometry.numEdges];
+			for (int e = 0; e < geometry.numEdges; e++) {
+				edges[e] = geometry.symmetricEdge(g, e);
+				String what = "n="+n+" symmetry "+g+" of edge "+e;
+				Check.that(!reached[edges[e]], what+" reached twice");
+				reached[edges[e]] = true;
+				Check.equal(e, geometry.symmetricEdge(geometry.inverseSymmetry(g), edges[e]),
+						what+" undone by its inverse");
+				if (g == 0)
+					Check.equal(e, edges[e], what);
+			}
+			Check.that(seen.add(Arrays.toString(edges)), "n="+n+" symmetry "+g+" repeated");
+		}
+	}
+
+	/** Play a random game, checking the board against each symmetry of it
+	 *  after every move */
+	private static void play(int n, long seed){
+		Random random = new Random(seed);
+		Board board = new Board(n);
+		Board[] symmetric = new Board[HexGeometry.SYMMETRIES];
+		for (int g = 0; g < symmetric.length; g++)
+			symmetric[g] = new Board(n);
+		HexGeometry geometry = HexGeometry.of(n);
+		int[] edges = new int[geometry.numEdges];
+		int turn = BLUE;
+		int captures = 0;
+
+		for (int move = 0; board.getPossibleMoves() > 0; move++) {
+			int count = board.generatePosbMoves(edges, false);
+			int e = edges[random.nextInt(count)];
+			int captured = board.setBoard(e, turn);
+			for (int g = 0; g < symmetric.length; g++) {
+				Check.equal(captured, symmetric[g].setBoard(geometry.symmetricEdge(g, e), turn),
+						"n="+n+" seed "+seed+" move "+move+" symmetry "+g+", capture");
+				check(board, symmetric[g], g, "n="+n+" seed "+seed+" move "+move+" symmetry "+g);
+			}
+			captures += captured;
+			// after a capture the same player moves again
+			if (captured == 0)
+				turn = (turn == BLUE) ? RED : BLUE;
+		}
+		Check.that(captures > 0, "n="+n+" seed "+seed+", a game without a capture");
+	}
+
+	/** Check a board against the board the symmetry g takes it to */
+	private static void check(Board board, Board symmetric, int g, String where){
+		Check.equal(board.getHash(g), symmetric.getHash(0), where+", hash");
+		Check.equal(board.getEdgeHash(g), symmetric.getEdgeHash(0), where+", edge hash");
+		Check.equal(hashes(board, false), hashes(symmetric, false), where+", set of hashes");
+		Check.equal(hashes(board, true), hashes(symmetric, true), where+", set of edge hashes");
+		Check.equal(board.getHash(board.getCanonicalSymmetry()),
+				symmetric.getHash(symmetric.getCanonicalSymmetry()), where+", canonical hash");
+		Check.equal(board.getEdgeHash(board.getCanonicalEdgeSymmetry()),
+				symmetric.getEdgeHash(symmetric.getCanonicalEdgeSymmetry()),
+				where+", canonical edge hash");
+		Check.equal(board.blueHex, symmetric.blueHex, where+", cells of blue");
+		Check.equal(board.redHex, symmetric.redHex, where+", cells of red");
+		Check.equal(board.getPossibleMoves(), symmetric.getPossibleMoves(), where+", moves");
+		HexGeometry geometry = HexGeometry.of(board.n);
+		for (int e = 0; e < geometry.numEdges; e++)
+			Check.equal(board.getCaptureValue(e),
+					symmetric.getCaptureValue(geometry.symmetricEdge(g, e)),
+					where+", capture value of edge "+e);
+	}
+
+	/** Return the hashes of a board under every symmetry, in order */
+	private static Set<Long> hashes(Board board, boolean edges){
+		Set<Long> hashes = new TreeSet<Long>();
+		for (int g = 0; g < HexGeometry.SYMMETRIES; g++)
+			hashes.add(edges ? board.getEdgeHash(g) : board.getHash(g));
+		return hashes;
+	}
+}
@@ -0,0 +1,200 @@
+/** TranspositionTableTest class checking that entries of the
+ * TranspositionTable keep every field they are stored with and are
+ * found again only by the position they were stored for, even when
+ * an entry is torn by threads storing into the same slot at once.
+ *
+ * usage: java TranspositionTableTest
+ *
+ * @author Nihal Mirpuri (nmirpuri)
+ * @author Tessa Song (songt)
+ * @version 1.0
+ */
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+public class TranspositionTableTest {
+
+	// Random entries packed and stored
+	public static final int ENTRIES = 100000;
+	// Threads storing and probing the same bucket, and hashes each stores
+	public static final int THREADS = 4;
+	public static final int STORES = 200000;
+	public static final int HASHES = 8; // hashes they all store and probe
+
+
+	public static void main(String[] args){
+		packsEveryField();
+		findsWhatWasStored();
+		replacesOlderSearches();
+		missesTornEntries();
+		sharedBySeveralThreads();
+	}
+
+	/** Every field comes back from pack() as it went in, over its
+	 *  whole range and with the other fields at their extremes */
+	private static void packsEveryField(){
+		Random random = new Random(1);
+		int[] scores = {0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, Searcher.MAXINT,
+				Searcher.MININT};
+		for (int k = 0; k < ENTRIES; k++) {
+			int score = (k < scores.length) ? scores[k] : random.nextInt();
+			int depth = random.nextInt(Searcher.FINAL_DEPTH + 1);
+			int bound = TranspositionTable.EXACT + random.nextInt(3);
+			int age = random.nextInt(256);
+			// -1 for no move, up to the last edge of an n=3 board
+			int move = random.nextInt(HexGeometry.of(3).numEdges + 1) - 1;
+			long entry = TranspositionTable.pack(score, depth, bound, age, move);
+			String what = "entry "+k;
+			Check.that(entry != 0, what+" packs to 0, which means no entry");
+			Check.equal(score, TranspositionTable.score(entry), what+" score");
+			Check.equal(depth, TranspositionTable.depth(entry), what+" depth");
+			Check.equal(bound, TranspositionTable.bound(entry), what+" bound");
+			Check.equal(age, TranspositionTable.age(entry), what+" age");
+			Check.equal(move, TranspositionTable.move(entry), what+" move");
+		}
+	}
+
+	/** A probe finds the entry stored for the same hash, and never an
+	 *  entry stored for another hash, even in the same bucket */
+	private static void findsWhatWasStored(){
+		TranspositionTable table = new TranspositionTable(1);
+		Random random = new Random(2);
+		Map<Long, Long> stored = new HashMap<Long, Long>();
+		for (int k = 0; k < ENTRIES; k++) {
+			long hash = random.nextLong();
+			int score = random.nextInt(2001) - 1000;
+			int depth = 1 + random.nextInt(20);
+			table.store(hash, score, depth, TranspositionTable.EXACT, k % 90);
+			stored.put(hash, TranspositionTable.pack(score, depth,
+					TranspositionTable.EXACT, 0, k % 90));
+		}
+		int found = 0;
+		for (Map.Entry<Long, Long> entry : stored.entrySet()) {
+			long data = table.probe(entry.getKey());
+			if (data != 0) {
+				Check.equal((long) entry.getValue(), data, "entry of hash "+entry.getKey());
+				found++;
+			}
+		}
+		// 100000 entries in 65536 slots: most have to be there
+		Check.that(found > 40000, "only "+found+" of "+ENTRIES+" entries found");
+
+		// hashes never stored are never found
+		for (int k = 0; k < ENTRIES; k++) {
+			long hash = random.nextLong();
+			if (!stored.containsKey(hash))
+				Check.equal(0, table.probe(hash), "entry of a hash never stored");
+		}
+	}
+
+	/** The deep slot of a bucket keeps a deeper result of the current
+	 *  search, but gives way to anything once the search is over */
+	private static void replacesOlderSearches(){
+		TranspositionTable table = new TranspositionTable(1);
+		// three hashes of the same bucket
+		long first = 5;
+		long second = first + (1L << 40);
+		long third = first + (2L << 40);
+		table.store(first, 10, 9, TranspositionTable.EXACT, 1);
+		table.store(second, 20, 2, TranspositionTable.EXACT, 2);
+		table.store(third, 30, 3, TranspositionTable.EXACT, 3);
+		Check.that(table.probe(first) != 0, "deep entry replaced by shallower ones");
+		Check.equal(0, table.probe(second), "newest slot not replaced by the newest entry");
+		Check.equal(30, TranspositionTable.score(table.probe(third)), "score of newest entry");
+
+		table.newSearch();
+		table.store(second, 20, 2, TranspositionTable.EXACT, 2);
+		Check.equal(0, table.probe(first), "deep entry of an earlier search kept");
+		Check.equal(20, TranspositionTable.score(table.probe(second)), "score of new entry");
+
+		table.clear();
+		Check.equal(0, table.probe(second), "entry left after clear()");
+	}
+
+	/** An entry whose hash word was written with another data word
+	 *  than the one in the slot must not be found */
+	private static void missesTornEntries(){
+		TranspositionTable table = new TranspositionTable(1);
+		long hash = 0x1234_5678_9ABC_DEF0L;
+		table.store(hash, 10, 5, TranspositionTable.EXACT, 7);
+		Check.that(table.probe(hash) != 0, "entry not found before it was torn");
+
+		// another thread wrote its data word over the data word of this entry
+		AtomicLongArray entries = entries(table);
+		long other = TranspositionTable.pack(-10, 6, TranspositionTable.LOWER, 0, 8);
+		int slot = (int) (hash & (entries.length()/4 - 1)) * 2;
+		entries.set(2*slot+1, other);
+		Check.equal(0, table.probe(hash), "entry found with the data word of another");
+
+		// and the other way round, a hash word over the data word of this entry
+		table.clear();
+		table.store(hash, 10, 5, TranspositionTable.EXACT, 7);
+		entries.set(2*slot, (hash+1) ^ other);
+		Check.equal(0, table.probe(hash), "entry found with the hash word of another");
+		Check.equal(0, table.probe(hash+1), "entry found with the data word of another");
+	}
+
+	/** Threads storing and probing hashes of a table of one bucket only
+	 *  ever find the data stored for the hash they probe */
+	private static void sharedBySeveralThreads(){
+		TranspositionTable table = new TranspositionTable(0);
+		AtomicReference<String> failure = new AtomicReference<String>();
+		AtomicLong found = new AtomicLong();
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			Random random = new Random(t);
+			threads[t] = new Thread(() -> {
+				for (int k = 0; k < STORES && failure.get() == null; k++) {
+					long hash = sharedHash(random.nextInt(HASHES));
+					table.store(hash, score(hash), depth(hash), TranspositionTable.EXACT, -1);
+					long probed = sharedHash(random.nextInt(HASHES));
+					long data = table.probe(probed);
+					if (data != 0) {
+						found.incrementAndGet();
+						if (TranspositionTable.score(data) != score(probed)
+								|| TranspositionTable.depth(data) != depth(probed))
+							failure.set("hash "+probed+" found with the entry of another");
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				throw new AssertionError("interrupted", e);
+			}
+		}
+		Check.equal(null, failure.get(), "probe of a shared table");
+		Check.that(found.get() > 0, "nothing found in a shared table");
+	}
+
+	/** Return the k-th hash stored in sharedBySeveralThreads() */
+	private static long sharedHash(int k){
+		return (k+1) * 0x9E37_79B9_7F4A_7C15L;
+	}
+
+	/** Return the score stored for a hash in sharedBySeveralThreads() */
+	private static int score(long hash){
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	/** Return the depth stored for a hash in sharedBySeveralThreads() */
+	private static int depth(long hash){
+		return 1 + (int) ((hash >>> 40) & 0x7F);
+	}
+
+	/** Return the entries of a table, to write words into them directly */
+	private static AtomicLongArray entries(TranspositionTable table){
+		try {
+			Field field = TranspositionTable.class.getDeclaredField("entries");
+			field.setAccessible(true);
+			return (AtomicLongArray) field.get(table);
+		} catch (ReflectiveOperationException e) {
+			throw new AssertionError("no entries in TranspositionTable", e);
+		}
+	}
+}